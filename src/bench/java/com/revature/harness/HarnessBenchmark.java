@@ -0,0 +1,167 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Benchmarks for the setup phases of HarnessExtension and for the element reads
+ * the lab checks perform.
+ *
+ * Needs a local headless Chrome/Chromium and driver that BrowserDiscovery can
+ * find. Run with: mvn -Pbenchmark verify [-Djmh.args="HarnessBenchmark.driver.* -prof gc"]
+ *
+ * The project root is the working directory unless -Dbench.project.root is set.
+ * Browser benchmarks run once per LaunchProfile preset; add "-p launchProfile=throughput"
+ * to jmh.args to measure a single preset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HarnessBenchmark {
+    private static final List<String> IDS = Arrays.asList("original", "afterFilter", "afterMap", "consoleOutput");
+
+    private File projectRoot;
+    private File htmlFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        projectRoot = new File(System.getProperty("bench.project.root", ".")).getCanonicalFile();
+        htmlFile = new File(projectRoot, "src/main/Callbacks.html");
+    }
+
+    /**
+     * Browser-bound state, only created by the benchmarks that need a browser.
+     */
+    @State(Scope.Benchmark)
+    public static class Browser {
+        @Param({ LaunchProfile.DEFAULT, LaunchProfile.THROUGHPUT })
+        String launchProfile;
+
+        BrowserConfig config;
+        LaunchProfile profile;
+        String httpUrl;
+        String fileUrl;
+        SessionPool pool;
+        WebDriver warmDriver;
+
+        @Setup(Level.Trial)
+        public void setUp(HarnessBenchmark benchmark) throws Exception {
+            config = BrowserDiscovery.detect();
+            profile = LaunchProfile.named(launchProfile);
+            httpUrl = StaticFileServer.shared().urlFor(benchmark.projectRoot, benchmark.htmlFile);
+            fileUrl = "file://" + benchmark.htmlFile.getAbsolutePath();
+            pool = new SessionPool(1, SessionPool.SCOPE_JVM);
+
+            warmDriver = BrowserFactory.create(config, profile);
+            warmDriver.get(httpUrl);
+            PageReadiness.awaitDocumentReady(warmDriver);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (warmDriver != null) {
+                warmDriver.quit();
+            }
+            pool.drain();
+        }
+    }
+
+    // Driver discovery
+
+    @Benchmark
+    public BrowserConfig discoveryUncached() {
+        return BrowserDiscovery.discover();
+    }
+
+    @Benchmark
+    public BrowserConfig discoveryMemoized() {
+        return BrowserDiscovery.detect();
+    }
+
+    // Serving: first request through the in-process server
+
+    @Benchmark
+    public int serveHttp() throws Exception {
+        String url = StaticFileServer.shared().urlFor(projectRoot, htmlFile);
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.getInputStream().readAllBytes();
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    // WebDriver creation
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public void driverCold(Browser browser) {
+        WebDriver driver = BrowserFactory.create(browser.config, browser.profile);
+        driver.quit();
+    }
+
+    @Benchmark
+    public void driverWarm(Browser browser) throws Exception {
+        WebDriver driver = browser.pool.lease(() -> BrowserFactory.create(browser.config, browser.profile));
+        browser.pool.release(driver);
+    }
+
+    // Navigation to Callbacks.html
+
+    @Benchmark
+    public void navigateHttp(Browser browser) {
+        browser.warmDriver.get(browser.httpUrl);
+        PageReadiness.awaitDocumentReady(browser.warmDriver);
+    }
+
+    @Benchmark
+    public void navigateFileUrl(Browser browser) {
+        browser.warmDriver.get(browser.fileUrl);
+        PageReadiness.awaitDocumentReady(browser.warmDriver);
+    }
+
+    // Element lookup and text retrieval
+
+    @Benchmark
+    public void elementTextPerElement(Browser browser, Blackhole blackhole) {
+        for (String id : IDS) {
+            blackhole.consume(browser.warmDriver.findElement(By.id(id)).getText());
+        }
+    }
+
+    @Benchmark
+    public DomSnapshot elementTextSnapshot(Browser browser) {
+        return DomSnapshot.capture(browser.warmDriver, IDS);
+    }
+
+    @Benchmark
+    public Object elementTextAwait(Browser browser) {
+        return PageReadiness.awaitText(browser.warmDriver, IDS);
+    }
+}
@@ -0,0 +1,234 @@
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+
+import com.revature.harness.AdmissionControl;
+import com.revature.harness.HarnessExtension;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+/**
+ * Grades a directory of submissions concurrently.
+ *
+ * Every sub-directory of the submissions directory is treated as one submission
+ * root (the folder that would normally be the project root, containing
+ * src/main/Callbacks.html). Submissions are graded by a bounded worker pool; each
+ * worker runs the SeleniumTest checks with its own submission root and its own
+ * browser session from the shared SessionPool. One result line is printed as
+ * soon as each submission finishes.
+ *
+ * Usage: BatchGrader <submissionsDir> [--workers N] [--test-class Name]
+ *
+ * --test-class defaults to SeleniumTest and is required while that class has no
+ * active checks. A submission for which no tests were found is reported as FAIL
+ * rather than passing with 0/0.
+ *
+ * Without --workers the pool is sized to the number of CPUs, capped by available
+ * memory (host or cgroup) divided by selenium.batch.browserMemoryMb (default 512).
+ * The result cache, warm-start mode and adaptive timeouts are on unless
+ * selenium.results.cache=false, selenium.warm=false or
+ * selenium.timeouts.adaptive=false is given.
+ * With -Dselenium.pool.mode=contexts, workers share browsers instead of each
+ * having one: every test gets its own browser context (see ContextMultiplexer).
+ */
+public class BatchGrader {
+    private static final long DEFAULT_BROWSER_MEMORY_MB = 512;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: BatchGrader <submissionsDir> [--workers N] [--test-class Name]");
+            System.exit(2);
+        }
+
+        File submissionsDir = new File(args[0]);
+        int workers = 0;
+        String testClassName = SeleniumTest.class.getName();
+        for (int i = 1; i < args.length; i++) {
+            if ("--workers".equals(args[i]) && i + 1 < args.length) {
+                workers = Integer.parseInt(args[++i]);
+            } else if ("--test-class".equals(args[i]) && i + 1 < args.length) {
+                testClassName = args[++i];
+            } else {
+                System.err.println("Unknown argument: " + args[i]);
+                System.exit(2);
+            }
+        }
+
+        File[] submissions = submissionsDir.listFiles(File::isDirectory);
+        if (submissions == null || submissions.length == 0) {
+            System.err.println("No submissions found in " + submissionsDir.getAbsolutePath());
+            System.exit(2);
+        }
+        Arrays.sort(submissions);
+
+        if (workers <= 0) {
+            workers = defaultWorkerCount();
+        }
+        workers = Math.min(workers, submissions.length);
+
+        configure(workers);
+        Class<?> testClass = testClass(testClassName);
+        int failed = grade(submissions, testClass, workers);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * Sets the harness up for grading with the given number of workers. Must run
+     * before the test class is loaded.
+     */
+    static void configure(int workers) {
+        // Every worker needs its own browser session; this must be set before
+        // HarnessExtension is initialised because the pool is created statically.
+        System.setProperty("selenium.pool.size", String.valueOf(workers));
+        // Resubmissions with unchanged files are answered from the result cache,
+        // sessions share one driver process and a prepared profile template, and
+        // timeouts follow this node's latency history
+        for (String property : new String[] { "selenium.results.cache", "selenium.warm",
+                "selenium.timeouts.adaptive" }) {
+            if (System.getProperty(property) == null) {
+                System.setProperty(property, "true");
+            }
+        }
+    }
+
+    /**
+     * Loads the test class, exiting when it holds no tests: grading with it
+     * would pass every submission without checking anything. Must run after
+     * {@link #configure}.
+     */
+    static Class<?> testClass(String name) throws ClassNotFoundException {
+        Class<?> testClass = Class.forName(name);
+        LauncherDiscoveryRequest request = LauncherDiscoveryRequestBuilder.request()
+            .selectors(selectClass(testClass))
+            .build();
+        if (!LauncherFactory.create().discover(request).containsTests()) {
+            System.err.println(name + " has no tests; pass --test-class with the class that holds the checks");
+            System.exit(2);
+        }
+        return testClass;
+    }
+
+    /**
+     * Grades every submission and returns the number of submissions that failed.
+     */
+    static int grade(File[] submissions, Class<?> testClass, int workers) throws InterruptedException {
+        System.out.println("Grading " + submissions.length + " submissions with " + workers + " workers");
+        int failed = grade(submissions, testClass, workers, System.out::print);
+        System.out.println("Graded " + submissions.length + " submissions, " + failed + " failed");
+        return failed;
+    }
+
+    /**
+     * Grades every submission, passing each submission's result lines to report
+     * as soon as it finishes, and returns the number of submissions that failed.
+     */
+    static int grade(File[] submissions, Class<?> testClass, int workers, Consumer<String> report)
+            throws InterruptedException {
+        AtomicInteger workerIds = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable ->
+            new Thread(runnable, "grader-" + workerIds.incrementAndGet()));
+        CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+
+        List<Future<Result>> pending = new ArrayList<>();
+        for (File submission : submissions) {
+            pending.add(completion.submit(() -> gradeSubmission(submission, testClass)));
+        }
+
+        int failed = 0;
+        try {
+            for (int i = 0; i < pending.size(); i++) {
+                Result result;
+                try {
+                    result = completion.take().get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    report.accept("ERROR\t" + e.getCause() + System.lineSeparator());
+                    continue;
+                }
+                if (!result.passed()) {
+                    failed++;
+                }
+                report.accept(result.format());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return failed;
+    }
+
+    private static Result gradeSubmission(File submission, Class<?> testClass) {
+        long start = System.nanoTime();
+        HarnessExtension.SUBMISSION_ROOT.set(submission.getAbsoluteFile());
+        try {
+            LauncherDiscoveryRequest request = LauncherDiscoveryRequestBuilder.request()
+                .selectors(selectClass(testClass))
+                .build();
+            Launcher launcher = LauncherFactory.create();
+            SummaryGeneratingListener listener = new SummaryGeneratingListener();
+            launcher.execute(request, listener);
+            return new Result(submission, listener.getSummary(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            HarnessExtension.SUBMISSION_ROOT.remove();
+        }
+    }
+
+    static int defaultWorkerCount() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        long browserMemoryMb = Long.getLong("selenium.batch.browserMemoryMb", DEFAULT_BROWSER_MEMORY_MB);
+        // Honours container memory limits as well as the host's free memory
+        long availableBytes = AdmissionControl.availableMemoryBytes();
+        if (availableBytes >= 0) {
+            long freeMb = availableBytes / (1024 * 1024);
+            int byMemory = (int) Math.max(1, freeMb / browserMemoryMb);
+            return Math.max(1, Math.min(cpus, byMemory));
+        }
+        return Math.max(1, cpus);
+    }
+
+    private static class Result {
+        final File submission;
+        final TestExecutionSummary summary;
+        final long millis;
+
+        Result(File submission, TestExecutionSummary summary, long millis) {
+            this.submission = submission;
+            this.summary = summary;
+            this.millis = millis;
+        }
+
+        // A run that found no tests checked nothing, so it does not pass
+        boolean passed() {
+            return summary.getTestsFoundCount() > 0 && summary.getTotalFailureCount() == 0;
+        }
+
+        // One line per submission, then one indented line per failed test
+        String format() {
+            StringBuilder lines = new StringBuilder();
+            lines.append(passed() ? "PASS" : "FAIL").append('\t').append(submission.getName())
+                .append('\t').append(summary.getTestsSucceededCount()).append('/').append(summary.getTestsFoundCount())
+                .append('\t').append(millis).append(" ms").append(System.lineSeparator());
+            if (summary.getTestsFoundCount() == 0) {
+                lines.append("\tNo tests found").append(System.lineSeparator());
+            }
+            for (TestExecutionSummary.Failure failure : summary.getFailures()) {
+                lines.append('\t').append(failure.getTestIdentifier().getDisplayName())
+                    .append(": ").append(failure.getException()).append(System.lineSeparator());
+            }
+            return lines.toString();
+        }
+    }
+}
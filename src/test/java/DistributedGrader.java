@@ -0,0 +1,276 @@
+import com.revature.harness.FileWorkQueue;
+import com.revature.harness.WorkQueue;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Grades a directory of submissions on several nodes.
+ *
+ * The coordinator splits the submissions into shards of a few submissions
+ * each and puts them in a WorkQueue, here a FileWorkQueue in a directory every
+ * node can reach. Workers on any number of nodes claim shards, grade them as
+ * BatchGrader does, and store each shard's result lines. A worker runs as many
+ * claim loops as it has --workers, each grading one submission at a time, so
+ * it keeps that many browsers busy no matter how the shards are cut. While a
+ * worker grades it renews its lease on the shard; the shard of a worker that
+ * stops renewing, e.g. because its node died, is requeued for another worker,
+ * and a worker that finds its lease lost does not store its result for that
+ * shard. Once every shard is done the coordinator merges the results into one
+ * report, printed and written to report.txt in the queue directory, in
+ * BatchGrader's format.
+ *
+ * Usage:
+ *   DistributedGrader coordinate <queueDir> <submissionsDir> [--shard-size N]
+ *   DistributedGrader work <queueDir> [--workers N] [--test-class Name] [--id WorkerId]
+ *
+ * Submissions are queued by absolute path, so the submissions directory must
+ * be mounted at the same path on every node.
+ * Running the coordinator again on the same queue directory resumes it
+ * instead of adding the submissions again. Workers may start before the
+ * coordinator; they also requeue expired leases, and exit once the
+ * coordinator has queued every shard and none is pending or leased.
+ * --workers defaults as for BatchGrader; the worker id defaults to <host>-<pid>.
+ *
+ * Configuration (system properties):
+ *   selenium.queue.lease - seconds a lease lasts without a heartbeat (default 120)
+ *   selenium.queue.poll  - seconds between queue checks while waiting (default 2)
+ */
+public class DistributedGrader {
+    private static final int DEFAULT_SHARD_SIZE = 4;
+    private static final long POLL_MILLIS = TimeUnit.SECONDS.toMillis(Long.getLong("selenium.queue.poll", 2));
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && "coordinate".equals(args[0])) {
+            int shardSize = DEFAULT_SHARD_SIZE;
+            for (int i = 3; i < args.length; i++) {
+                if ("--shard-size".equals(args[i]) && i + 1 < args.length) {
+                    shardSize = Integer.parseInt(args[++i]);
+                } else {
+                    usage("Unknown argument: " + args[i]);
+                }
+            }
+            System.exit(coordinate(Paths.get(args[1]), new File(args[2]), Math.max(1, shardSize)));
+        } else if (args.length >= 2 && "work".equals(args[0])) {
+            int workers = 0;
+            String testClassName = SeleniumTest.class.getName();
+            String workerId = defaultWorkerId();
+            for (int i = 2; i < args.length; i++) {
+                if ("--workers".equals(args[i]) && i + 1 < args.length) {
+                    workers = Integer.parseInt(args[++i]);
+                } else if ("--test-class".equals(args[i]) && i + 1 < args.length) {
+                    testClassName = args[++i];
+                } else if ("--id".equals(args[i]) && i + 1 < args.length) {
+                    workerId = args[++i];
+                } else {
+                    usage("Unknown argument: " + args[i]);
+                }
+            }
+            if (workers <= 0) {
+                workers = BatchGrader.defaultWorkerCount();
+            }
+            BatchGrader.configure(workers);
+            work(Paths.get(args[1]), workerId, BatchGrader.testClass(testClassName), workers);
+            System.exit(0);
+        } else {
+            usage(null);
+        }
+    }
+
+    private static void usage(String problem) {
+        if (problem != null) {
+            System.err.println(problem);
+        }
+        System.err.println("Usage: DistributedGrader coordinate <queueDir> <submissionsDir> [--shard-size N]");
+        System.err.println("       DistributedGrader work <queueDir> [--workers N] [--test-class Name] [--id WorkerId]");
+        System.exit(2);
+    }
+
+    /**
+     * Queues the submissions unless that has been done before, waits until
+     * all shards are done and reports the merged results. Returns the exit code.
+     */
+    static int coordinate(Path queueDir, File submissionsDir, int shardSize) throws IOException, InterruptedException {
+        WorkQueue queue = new FileWorkQueue(queueDir);
+        if (!queue.isSealed()) {
+            File[] submissions = submissionsDir.listFiles(File::isDirectory);
+            if (submissions == null || submissions.length == 0) {
+                System.err.println("No submissions found in " + submissionsDir.getAbsolutePath());
+                return 2;
+            }
+            Arrays.sort(submissions);
+            int shards = 0;
+            for (int start = 0; start < submissions.length; start += shardSize) {
+                StringBuilder payload = new StringBuilder();
+                for (int i = start; i < Math.min(submissions.length, start + shardSize); i++) {
+                    payload.append(submissions[i].getAbsolutePath()).append('\n');
+                }
+                // Zero-padded so that shard order is submission order
+                queue.add(String.format("shard-%05d", shards++), payload.toString());
+            }
+            queue.seal();
+            System.out.println("Queued " + submissions.length + " submissions in " + shards + " shards");
+        } else {
+            System.out.println("Resuming queue: " + queue.status());
+        }
+
+        String last = null;
+        WorkQueue.Status status;
+        while (!(status = queue.status()).finished()) {
+            queue.requeueExpired();
+            if (!status.toString().equals(last)) {
+                last = status.toString();
+                System.out.println(last);
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+
+        StringBuilder report = new StringBuilder();
+        int graded = 0;
+        int failed = 0;
+        for (Map.Entry<String, String> result : queue.results().entrySet()) {
+            for (String line : result.getValue().split("\\R")) {
+                if (line.isEmpty() || line.startsWith("\t")) {
+                    continue;
+                }
+                graded++;
+                if (!line.startsWith("PASS")) {
+                    failed++;
+                }
+            }
+            report.append(result.getValue());
+        }
+        report.append("Graded ").append(graded).append(" submissions, ").append(failed).append(" failed")
+            .append(System.lineSeparator());
+        System.out.print(report);
+        Files.write(queueDir.resolve("report.txt"), report.toString().getBytes(StandardCharsets.UTF_8));
+        return failed == 0 ? 0 : 1;
+    }
+
+    /**
+     * Grades shards with the given number of claim loops until the queue is
+     * sealed and no shard is pending or leased.
+     */
+    static void work(Path queueDir, String workerId, Class<?> testClass, int workers)
+            throws IOException, InterruptedException {
+        FileWorkQueue queue = new FileWorkQueue(queueDir);
+        long heartbeatMillis = Math.max(1, queue.leaseDuration().toMillis() / 3);
+        ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "queue-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger loopIds = new AtomicInteger();
+        ExecutorService loops = Executors.newFixedThreadPool(workers, runnable ->
+            new Thread(runnable, "shard-loop-" + loopIds.incrementAndGet()));
+        System.out.println("Worker " + workerId + " grading from " + queueDir.toAbsolutePath()
+            + " with " + workers + " workers");
+        try {
+            CompletionService<Void> running = new ExecutorCompletionService<>(loops);
+            for (int i = 0; i < workers; i++) {
+                running.submit(() -> {
+                    gradeShards(queue, workerId, testClass, heartbeats, heartbeatMillis);
+                    return null;
+                });
+            }
+            // The first loop to fail stops the others
+            for (int i = 0; i < workers; i++) {
+                try {
+                    running.take().get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IllegalStateException("Shard loop failed", e.getCause());
+                }
+            }
+        } finally {
+            loops.shutdownNow();
+            heartbeats.shutdownNow();
+        }
+        System.out.println("Worker " + workerId + " finished: no shards left");
+    }
+
+    // One claim loop: claims a shard, grades its submissions one after another, repeats
+    private static void gradeShards(WorkQueue queue, String workerId, Class<?> testClass,
+            ScheduledExecutorService heartbeats, long heartbeatMillis) throws IOException, InterruptedException {
+        while (true) {
+            // Workers requeue too, so grading goes on without the coordinator
+            queue.requeueExpired();
+            WorkQueue.Lease lease = queue.claim(workerId);
+            if (lease == null) {
+                // Before the seal an empty queue only means the coordinator has not queued yet
+                if (queue.isSealed() && queue.status().finished()) {
+                    return;
+                }
+                Thread.sleep(POLL_MILLIS);
+                continue;
+            }
+
+            // Set once the shard has been requeued, so another worker may be grading it
+            AtomicBoolean lost = new AtomicBoolean();
+            ScheduledFuture<?> heartbeat = heartbeats.scheduleWithFixedDelay(() -> {
+                if (lost.get()) {
+                    return;
+                }
+                try {
+                    if (!queue.heartbeat(lease)) {
+                        lost.set(true);
+                        System.err.println("Lost the lease on " + lease.shardId() + "; it will be graded again");
+                    }
+                } catch (IOException e) {
+                    System.err.println("Heartbeat for " + lease.shardId() + " failed: " + e.getMessage());
+                }
+            }, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+            try {
+                List<File> submissions = new ArrayList<>();
+                for (String path : lease.payload().split("\\R")) {
+                    if (!path.isEmpty()) {
+                        submissions.add(new File(path));
+                    }
+                }
+                System.out.println("Grading " + lease.shardId() + " (" + submissions.size() + " submissions)");
+                StringBuilder result = new StringBuilder();
+                BatchGrader.grade(submissions.toArray(new File[0]), testClass, 1, lines -> {
+                    System.out.print(lines);
+                    result.append(lines);
+                });
+                if (lost.get()) {
+                    System.err.println("Not storing the result of " + lease.shardId() + ": its lease was lost");
+                } else {
+                    queue.complete(lease, result.toString());
+                }
+            } finally {
+                heartbeat.cancel(false);
+            }
+        }
+    }
+
+    private static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "local";
+        }
+        return (host + "-" + ProcessHandle.current().pid()).replaceAll("[^\\w.-]+", "_");
+    }
+}
@@ -0,0 +1,213 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Timeouts derived from the latencies this node has actually seen.
+ *
+ * The harness records how long browser launches, navigations, waits and
+ * helper processes take when they succeed. The samples are kept per node in
+ * <cache dir>/timeouts/<host>.properties, the most recent ones per kind, and
+ * saved when the JVM exits. With adaptive timeouts on, a timeout is the p99
+ * of its samples times a margin. It stays between a floor and the fixed
+ * default, which is the ceiling, so history can only shorten a timeout. Until
+ * a kind has enough samples its default is used. Timeouts are derived once
+ * per JVM from the history saved by earlier runs.
+ *
+ * A hung browser or a page that never finishes then fails in about the time
+ * real work takes on this node instead of the worst-case default.
+ *
+ * Configuration (system properties):
+ *   selenium.timeouts.adaptive   - "true" to derive timeouts (BatchGrader enables it by default)
+ *   selenium.timeouts.margin     - multiplier applied to the p99 (default 3)
+ *   selenium.timeouts.minSamples - samples needed before a timeout adapts (default 50)
+ */
+class AdaptiveTimeouts {
+    static final String LAUNCH = "launch";
+    static final String NAVIGATE = "navigate";
+    static final String WAIT = "wait";
+    static final String PROCESS = "process";
+
+    private static final Logger logger = TestDiagnostics.logger(AdaptiveTimeouts.class);
+    private static final int MAX_SAMPLES = 500;
+    private static final Map<String, Duration> FLOORS = Map.of(
+        LAUNCH, Duration.ofSeconds(10),
+        NAVIGATE, Duration.ofSeconds(10),
+        WAIT, Duration.ofSeconds(5),
+        PROCESS, Duration.ofSeconds(2));
+    private static final AdaptiveTimeouts SHARED = fromSystemProperties();
+
+    private final File file;
+    private final boolean adaptive;
+    private final double margin;
+    private final int minSamples;
+    // Samples saved by earlier runs, oldest first
+    private final Map<String, long[]> history;
+    // Samples taken by this JVM and not saved yet
+    private final Map<String, List<Long>> recorded = new HashMap<>();
+    private boolean hooked;
+
+    AdaptiveTimeouts(File file, boolean adaptive, double margin, int minSamples) {
+        this.file = file;
+        this.adaptive = adaptive;
+        this.margin = margin;
+        this.minSamples = Math.max(1, minSamples);
+        this.history = load(file);
+    }
+
+    static AdaptiveTimeouts fromSystemProperties() {
+        File directory = new File(DiscoveryCache.cacheDirectory(), "timeouts");
+        return new AdaptiveTimeouts(new File(directory, nodeName() + ".properties"),
+            Boolean.parseBoolean(System.getProperty("selenium.timeouts.adaptive", "false")),
+            Double.parseDouble(System.getProperty("selenium.timeouts.margin", "3")),
+            Integer.getInteger("selenium.timeouts.minSamples", 50));
+    }
+
+    static AdaptiveTimeouts shared() {
+        return SHARED;
+    }
+
+    /**
+     * The timeout for a kind of operation: the default, or the p99 of this
+     * node's history times the margin, between the floor and the default.
+     */
+    Duration timeout(String kind, Duration ceiling) {
+        long[] samples = history.get(kind);
+        if (!adaptive || samples == null || samples.length < minSamples) {
+            return ceiling;
+        }
+        long p99 = percentile(samples, 0.99);
+        long floor = FLOORS.getOrDefault(kind, Duration.ZERO).toMillis();
+        long millis = Math.min(ceiling.toMillis(), Math.max(floor, (long) Math.ceil(p99 * margin)));
+        logger.fine(() -> "Adaptive " + kind + " timeout " + millis + " ms (p99 " + p99 + " ms over "
+            + samples.length + " samples, default " + ceiling.toMillis() + " ms)");
+        return Duration.ofMillis(millis);
+    }
+
+    /**
+     * Records the time elapsed since startNanos (from System.nanoTime()) for a
+     * kind of operation that succeeded.
+     */
+    void record(String kind, long startNanos) {
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        synchronized (this) {
+            List<Long> samples = recorded.computeIfAbsent(kind, k -> new ArrayList<>());
+            if (samples.size() >= MAX_SAMPLES) {
+                samples.remove(0);
+            }
+            samples.add(millis);
+            if (!hooked) {
+                hooked = true;
+                Runtime.getRuntime().addShutdownHook(new Thread(this::save, "adaptive-timeouts-save"));
+            }
+        }
+    }
+
+    /**
+     * Appends this JVM's samples to the node's history file, keeping the most
+     * recent ones per kind. Concurrent JVMs may overwrite each other's samples
+     * of the same moment; the history is a statistic, so that is acceptable.
+     */
+    synchronized void save() {
+        if (recorded.isEmpty()) {
+            return;
+        }
+        Map<String, long[]> merged = load(file);
+        for (Map.Entry<String, List<Long>> entry : recorded.entrySet()) {
+            long[] previous = merged.getOrDefault(entry.getKey(), new long[0]);
+            List<Long> added = entry.getValue();
+            long[] all = Arrays.copyOf(previous, previous.length + added.size());
+            for (int i = 0; i < added.size(); i++) {
+                all[previous.length + i] = added.get(i);
+            }
+            merged.put(entry.getKey(), Arrays.copyOfRange(all, Math.max(0, all.length - MAX_SAMPLES), all.length));
+        }
+        recorded.clear();
+
+        Properties properties = new Properties();
+        for (Map.Entry<String, long[]> entry : merged.entrySet()) {
+            StringBuilder value = new StringBuilder();
+            for (long sample : entry.getValue()) {
+                if (value.length() > 0) {
+                    value.append(',');
+                }
+                value.append(sample);
+            }
+            properties.setProperty(entry.getKey(), value.toString());
+        }
+        try {
+            File directory = file.getParentFile();
+            Files.createDirectories(directory.toPath());
+            File temp = File.createTempFile("timeouts", ".tmp", directory);
+            try (OutputStream out = new FileOutputStream(temp)) {
+                properties.store(out, "Observed latencies in milliseconds, oldest first");
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("Could not save latency history: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, long[]> load(File file) {
+        Map<String, long[]> samples = new HashMap<>();
+        if (!file.isFile()) {
+            return samples;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warning("Ignoring unreadable latency history: " + e.getMessage());
+            return samples;
+        }
+        for (String kind : properties.stringPropertyNames()) {
+            try {
+                samples.put(kind, Arrays.stream(properties.getProperty(kind).split(","))
+                    .map(String::trim)
+                    .filter(value -> !value.isEmpty())
+                    .mapToLong(Long::parseLong)
+                    .toArray());
+            } catch (NumberFormatException e) {
+                logger.fine(() -> "Ignoring malformed latency samples for " + kind);
+            }
+        }
+        return samples;
+    }
+
+    static long percentile(long[] samples, double fraction) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    // Shared cache directories (e.g. an NFS home) hold one history per node
+    private static String nodeName() {
+        String name = System.getenv("HOSTNAME");
+        if (name == null || name.isEmpty()) {
+            try {
+                name = InetAddress.getLocalHost().getHostName();
+            } catch (IOException e) {
+                name = "local";
+            }
+        }
+        return name.replaceAll("[^\\w.-]+", "_");
+    }
+}
@@ -0,0 +1,96 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AdaptiveTimeoutsTest {
+    private static final Duration CEILING = Duration.ofSeconds(60);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void percentileIsNearestRank() {
+        long[] samples = LongStream.rangeClosed(1, 100).toArray();
+        assertEquals(50, AdaptiveTimeouts.percentile(samples, 0.5));
+        assertEquals(99, AdaptiveTimeouts.percentile(samples, 0.99));
+        assertEquals(100, AdaptiveTimeouts.percentile(samples, 1.0));
+        assertEquals(1, AdaptiveTimeouts.percentile(samples, 0.0));
+    }
+
+    @Test
+    public void percentileDoesNotDependOnSampleOrder() {
+        assertEquals(30, AdaptiveTimeouts.percentile(new long[] { 40, 10, 30, 20 }, 0.75));
+        assertEquals(7, AdaptiveTimeouts.percentile(new long[] { 7 }, 0.99));
+    }
+
+    @Test
+    public void timeoutIsP99TimesMargin() throws IOException {
+        // Samples of 100 ms to 10 s, so the p99 is 9.9 s, between the 10 s floor and the ceiling once doubled
+        AdaptiveTimeouts timeouts = withHistory(AdaptiveTimeouts.NAVIGATE, LongStream.rangeClosed(1, 100)
+            .map(second -> second * 100), 2.0, 10);
+        assertEquals(Duration.ofMillis(9900 * 2), timeouts.timeout(AdaptiveTimeouts.NAVIGATE, CEILING));
+    }
+
+    @Test
+    public void timeoutIsClampedToTheFloor() throws IOException {
+        AdaptiveTimeouts timeouts = withHistory(AdaptiveTimeouts.NAVIGATE, LongStream.rangeClosed(1, 100), 3.0, 10);
+        assertEquals(Duration.ofSeconds(10), timeouts.timeout(AdaptiveTimeouts.NAVIGATE, CEILING));
+    }
+
+    @Test
+    public void timeoutIsClampedToTheCeiling() throws IOException {
+        AdaptiveTimeouts timeouts = withHistory(AdaptiveTimeouts.LAUNCH, LongStream.rangeClosed(1, 100)
+            .map(second -> second * 1000), 3.0, 10);
+        assertEquals(CEILING, timeouts.timeout(AdaptiveTimeouts.LAUNCH, CEILING));
+    }
+
+    @Test
+    public void defaultIsUsedUntilThereAreEnoughSamples() throws IOException {
+        AdaptiveTimeouts timeouts = withHistory(AdaptiveTimeouts.WAIT, LongStream.rangeClosed(1, 9), 3.0, 10);
+        assertEquals(CEILING, timeouts.timeout(AdaptiveTimeouts.WAIT, CEILING));
+    }
+
+    @Test
+    public void defaultIsUsedWhenAdaptiveTimeoutsAreOff() throws IOException {
+        File file = historyFile(AdaptiveTimeouts.WAIT, LongStream.rangeClosed(1, 100));
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts(file, false, 3.0, 10);
+        assertEquals(CEILING, timeouts.timeout(AdaptiveTimeouts.WAIT, CEILING));
+    }
+
+    @Test
+    public void savedSamplesAreUsedByTheNextRun() throws IOException {
+        File file = directory.resolve("node.properties").toFile();
+        AdaptiveTimeouts first = new AdaptiveTimeouts(file, true, 1.0, 3);
+        for (int i = 0; i < 3; i++) {
+            first.record(AdaptiveTimeouts.PROCESS, System.nanoTime() - Duration.ofSeconds(4).toNanos());
+        }
+        first.save();
+
+        AdaptiveTimeouts next = new AdaptiveTimeouts(file, true, 1.0, 3);
+        long millis = next.timeout(AdaptiveTimeouts.PROCESS, CEILING).toMillis();
+        assertEquals(4, millis / 1000);
+    }
+
+    private AdaptiveTimeouts withHistory(String kind, LongStream samples, double margin, int minSamples)
+            throws IOException {
+        return new AdaptiveTimeouts(historyFile(kind, samples), true, margin, minSamples);
+    }
+
+    private File historyFile(String kind, LongStream samples) throws IOException {
+        String values = samples.mapToObj(Long::toString).collect(Collectors.joining(","));
+        Path file = directory.resolve("node.properties");
+        Files.write(file, (kind + "=" + values + "\n").getBytes(StandardCharsets.UTF_8));
+        return file.toFile();
+    }
+}
@@ -0,0 +1,370 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.FileLockInterruptionException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Admits new browser sessions only while the node has room for them.
+ *
+ * Before a browser is launched, the available memory (the lower of the host's
+ * MemAvailable and the headroom left in the container's cgroup) and the load
+ * average per CPU are checked. While either is short, the launch waits. An
+ * admitted launch reserves its browser's memory until the browser has
+ * started, and reserved memory does not count as free. The check and the
+ * reservation are made under a lock, held across threads and, through a lock
+ * file that also stores the reservations, across JVMs such as surefire forks,
+ * so two processes cannot both claim the same free memory. The launches
+ * themselves run concurrently.
+ *
+ * Sessions whose largest renderer grows past the RSS limit are replaced by the
+ * SessionPool instead of being reused.
+ *
+ * Configuration (system properties):
+ *   selenium.admission                 - set to "false" to launch without checks
+ *   selenium.admission.browserMemoryMb - memory a new browser needs (default selenium.batch.browserMemoryMb, else 512)
+ *   selenium.admission.maxLoadPerCpu   - 1-minute load average per CPU above which launches wait (default 1.5)
+ *   selenium.admission.timeoutSeconds  - longest a launch waits for capacity (default 300)
+ *   selenium.renderer.maxRssMb         - renderer RSS at which a session is replaced (default 1024, 0 disables)
+ */
+public class AdmissionControl {
+    private static final Logger logger = TestDiagnostics.logger(AdmissionControl.class);
+    private static final long MB = 1024 * 1024;
+    private static final long POLL_MILLIS = 250;
+    // Longest a launch may hold its reservation; the driver service start alone is bounded by 30 s
+    private static final long RESERVATION_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    private static final long PID = ProcessHandle.current().pid();
+    private static final AtomicLong RESERVATIONS = new AtomicLong();
+    private static final Path SYSTEM_ROOT = Paths.get("/");
+    private static final AdmissionControl SHARED = fromSystemProperties();
+
+    private final boolean enabled;
+    private final long browserMemoryBytes;
+    private final double maxLoadPerCpu;
+    private final long timeoutMillis;
+    private final long maxRendererRssBytes;
+    // Where /proc and /sys/fs/cgroup are read from, and the file holding the reservations
+    private final Path systemRoot;
+    private final Path lockFile;
+    private final ReentrantLock launchLock = new ReentrantLock(true);
+
+    AdmissionControl(boolean enabled, long browserMemoryMb, double maxLoadPerCpu, long timeoutSeconds,
+            long maxRendererRssMb, Path systemRoot, Path lockFile) {
+        this.enabled = enabled;
+        this.browserMemoryBytes = browserMemoryMb * MB;
+        this.maxLoadPerCpu = maxLoadPerCpu;
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        this.maxRendererRssBytes = maxRendererRssMb * MB;
+        this.systemRoot = systemRoot;
+        this.lockFile = lockFile;
+    }
+
+    static AdmissionControl fromSystemProperties() {
+        long batchMemoryMb = Long.getLong("selenium.batch.browserMemoryMb", 512L);
+        return new AdmissionControl(
+            Boolean.parseBoolean(System.getProperty("selenium.admission", "true")),
+            Long.getLong("selenium.admission.browserMemoryMb", batchMemoryMb),
+            Double.parseDouble(System.getProperty("selenium.admission.maxLoadPerCpu", "1.5")),
+            Long.getLong("selenium.admission.timeoutSeconds", 300L),
+            Long.getLong("selenium.renderer.maxRssMb", 1024L),
+            SYSTEM_ROOT,
+            new File(DiscoveryCache.cacheDirectory(), "admission.lock").toPath());
+    }
+
+    public static AdmissionControl shared() {
+        return SHARED;
+    }
+
+    /**
+     * Waits until the node can take another browser, then starts it with the factory.
+     *
+     * @throws TimeoutException if capacity does not free up within the timeout
+     */
+    public WebDriver launch(Supplier<WebDriver> factory) throws InterruptedException {
+        if (!enabled) {
+            return factory.get();
+        }
+        String reservation = awaitCapacity();
+        try {
+            return factory.get();
+        } finally {
+            release(reservation);
+        }
+    }
+
+    // Waits until the node has capacity and returns the admitted reservation
+    private String awaitCapacity() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        boolean waited = false;
+        String reservation = PID + " " + RESERVATIONS.incrementAndGet();
+        while (true) {
+            String state = tryReserve(reservation);
+            if (state == null) {
+                if (waited) {
+                    long waitedMillis = System.currentTimeMillis() - start;
+                    logger.info(() -> "Admitted browser launch after waiting " + waitedMillis + " ms");
+                    HarnessMetrics.attribute("admissionWaitMs", Long.toString(waitedMillis));
+                }
+                return reservation;
+            }
+            if (System.currentTimeMillis() - start > timeoutMillis) {
+                throw new TimeoutException("No capacity for another browser after "
+                    + timeoutMillis / 1000 + " s: " + state);
+            }
+            if (!waited) {
+                logger.info("Node saturated, queueing browser launch: " + state);
+                waited = true;
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Records the reservation if the node has capacity for it. Returns null
+     * when admitted, otherwise what is short.
+     */
+    private String tryReserve(String reservation) throws InterruptedException {
+        launchLock.lockInterruptibly();
+        try (FileChannel channel = openLockFile(); FileLock lock = channel.lock()) {
+            List<String> reservations = liveReservations(channel);
+            String shortage = shortage(reservations.size());
+            if (shortage == null) {
+                reservations.add(reservation + " " + (System.currentTimeMillis() + RESERVATION_MILLIS));
+                writeReservations(channel, reservations);
+            }
+            return shortage;
+        } catch (ClosedByInterruptException | FileLockInterruptionException e) {
+            // Cancelled while waiting for another JVM's lock
+            Thread.currentThread().interrupt();
+            InterruptedException interrupted = new InterruptedException("Interrupted while waiting for the admission lock");
+            interrupted.initCause(e);
+            throw interrupted;
+        } catch (IOException e) {
+            logger.warning("Admission lock unavailable, checking capacity without reserving: " + e.getMessage());
+            return shortage(0);
+        } finally {
+            launchLock.unlock();
+        }
+    }
+
+    private void release(String reservation) {
+        // Even a cancelled launch must give its reservation back
+        boolean interrupted = Thread.interrupted();
+        launchLock.lock();
+        try (FileChannel channel = openLockFile(); FileLock lock = channel.lock()) {
+            List<String> reservations = liveReservations(channel);
+            reservations.removeIf(line -> line.startsWith(reservation + " "));
+            writeReservations(channel, reservations);
+        } catch (IOException e) {
+            logger.fine(() -> "Could not release admission reservation: " + e.getMessage());
+        } finally {
+            launchLock.unlock();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // What keeps another browser from launching with this many reserved, or null
+    String shortage(int reserved) {
+        long available = availableMemoryBytes(systemRoot);
+        double load = loadPerCpu(systemRoot);
+        long free = available < 0 ? -1 : available - reserved * browserMemoryBytes;
+        boolean memoryOk = available < 0 || free >= browserMemoryBytes;
+        boolean cpuOk = load < 0 || load <= maxLoadPerCpu;
+        if (memoryOk && cpuOk) {
+            return null;
+        }
+        return "available memory " + available / MB + " MB with " + reserved + " launches reserved (need "
+            + browserMemoryBytes / MB + " MB), load per CPU " + String.format("%.2f", load)
+            + " (limit " + maxLoadPerCpu + ")";
+    }
+
+    // Lines "<pid> <n> <expiry millis>" of launches still in progress
+    private static List<String> liveReservations(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), 1 << 20));
+        channel.read(buffer, 0);
+        List<String> reservations = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (String line : new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).split("\n")) {
+            String[] fields = line.trim().split(" ");
+            if (fields.length != 3) {
+                continue;
+            }
+            try {
+                long pid = Long.parseLong(fields[0]);
+                boolean alive = ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+                if (alive && Long.parseLong(fields[2]) > now) {
+                    reservations.add(line.trim());
+                }
+            } catch (NumberFormatException e) {
+                // Not a reservation
+            }
+        }
+        return reservations;
+    }
+
+    private static void writeReservations(FileChannel channel, List<String> reservations) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (String reservation : reservations) {
+            content.append(reservation).append('\n');
+        }
+        channel.truncate(0);
+        channel.write(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)), 0);
+    }
+
+    private FileChannel openLockFile() throws IOException {
+        Files.createDirectories(lockFile.getParent());
+        return FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    }
+
+    /**
+     * True when the session's largest renderer uses more memory than allowed.
+     */
+    public boolean rendererOverLimit(WebDriver session) {
+        if (maxRendererRssBytes <= 0) {
+            return false;
+        }
+        File profile = BrowserProfiles.profileOf(session);
+        if (profile == null) {
+            return false;
+        }
+        long rss = BrowserProcesses.maxRendererRssBytes(profile);
+        if (rss > maxRendererRssBytes) {
+            logger.info(() -> "Renderer RSS " + rss / MB + " MB is over the " + maxRendererRssBytes / MB + " MB limit");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Memory a new process can use: the lower of the host's MemAvailable and
+     * the cgroup headroom, or -1 when neither is known.
+     */
+    public static long availableMemoryBytes() {
+        return availableMemoryBytes(SYSTEM_ROOT);
+    }
+
+    static long availableMemoryBytes(Path root) {
+        long host = meminfoBytes(root, "MemAvailable");
+        if (host < 0) {
+            java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            if (os instanceof com.sun.management.OperatingSystemMXBean) {
+                host = ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize();
+            }
+        }
+        long cgroup = cgroupHeadroomBytes(root);
+        if (cgroup >= 0 && (host < 0 || cgroup < host)) {
+            return cgroup;
+        }
+        return host;
+    }
+
+    // Limit minus usage, not counting reclaimable page cache; -1 when unlimited or unknown
+    private static long cgroupHeadroomBytes(Path root) {
+        // cgroup v2
+        long limit = readLong(root, "sys/fs/cgroup/memory.max");
+        if (limit > 0) {
+            long usage = readLong(root, "sys/fs/cgroup/memory.current");
+            long cache = statValue(root, "sys/fs/cgroup/memory.stat", "inactive_file");
+            return usage < 0 ? -1 : limit - usage + Math.max(0, cache);
+        }
+        // cgroup v1; an unlimited group reports a huge number
+        limit = readLong(root, "sys/fs/cgroup/memory/memory.limit_in_bytes");
+        if (limit > 0 && limit < Long.MAX_VALUE / 2) {
+            long usage = readLong(root, "sys/fs/cgroup/memory/memory.usage_in_bytes");
+            long cache = statValue(root, "sys/fs/cgroup/memory/memory.stat", "total_inactive_file");
+            return usage < 0 ? -1 : limit - usage + Math.max(0, cache);
+        }
+        return -1;
+    }
+
+    /**
+     * One-minute load average divided by the CPUs this JVM may use, or -1 when unknown.
+     */
+    static double loadPerCpu(Path root) {
+        double load = -1;
+        List<String> loadavg = readLines(root, "proc/loadavg");
+        if (!loadavg.isEmpty()) {
+            try {
+                load = Double.parseDouble(loadavg.get(0).split("\\s+")[0]);
+            } catch (NumberFormatException e) {
+                load = -1;
+            }
+        }
+        if (load < 0) {
+            load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        }
+        // availableProcessors() already honours container CPU quotas
+        return load < 0 ? -1 : load / Runtime.getRuntime().availableProcessors();
+    }
+
+    private static long meminfoBytes(Path root, String field) {
+        for (String line : readLines(root, "proc/meminfo")) {
+            if (line.startsWith(field + ":")) {
+                try {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static long statValue(Path root, String file, String key) {
+        for (String line : readLines(root, file)) {
+            String[] parts = line.split("\\s+");
+            if (parts.length == 2 && parts[0].equals(key)) {
+                try {
+                    return Long.parseLong(parts[1]);
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // "max" (no limit) and missing files read as -1
+    private static long readLong(Path root, String file) {
+        List<String> lines = readLines(root, file);
+        if (lines.isEmpty()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lines.get(0).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static List<String> readLines(Path root, String file) {
+        try {
+            return Files.readAllLines(root.resolve(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+    }
+}
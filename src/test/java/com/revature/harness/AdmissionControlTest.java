@@ -0,0 +1,146 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openqa.selenium.TimeoutException;
+
+public class AdmissionControlTest {
+    private static final long MB = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private Path root;
+
+    @BeforeEach
+    public void createSystemRoot() throws IOException {
+        root = Files.createDirectories(directory.resolve("root"));
+        write("proc/loadavg", "0.00 0.00 0.00 1/100 1\n");
+    }
+
+    @Test
+    public void admitsWhileMemoryCoversAnotherBrowser() throws IOException {
+        write("proc/meminfo", "MemTotal:       8388608 kB\nMemAvailable:    2097152 kB\n");
+        AdmissionControl control = control(512, 1.5, 300);
+
+        assertEquals(2048 * MB, AdmissionControl.availableMemoryBytes(root));
+        assertNull(control.shortage(0));
+        // 2048 MB less three reserved launches leaves exactly one browser's worth
+        assertNull(control.shortage(3));
+        assertNotNull(control.shortage(4));
+    }
+
+    @Test
+    public void cgroupHeadroomLimitsTheHostMemory() throws IOException {
+        write("proc/meminfo", "MemAvailable:    8388608 kB\n");
+        write("sys/fs/cgroup/memory.max", 1024 * MB + "\n");
+        write("sys/fs/cgroup/memory.current", 900 * MB + "\n");
+        write("sys/fs/cgroup/memory.stat", "anon 1\ninactive_file " + 100 * MB + "\n");
+
+        // Limit less usage, with reclaimable page cache counted as free
+        assertEquals(224 * MB, AdmissionControl.availableMemoryBytes(root));
+        assertNotNull(control(512, 1.5, 300).shortage(0));
+    }
+
+    @Test
+    public void unlimitedCgroupLeavesTheHostMemory() throws IOException {
+        write("proc/meminfo", "MemAvailable:    1048576 kB\n");
+        write("sys/fs/cgroup/memory.max", "max\n");
+        write("sys/fs/cgroup/memory.current", 900 * MB + "\n");
+
+        assertEquals(1024 * MB, AdmissionControl.availableMemoryBytes(root));
+    }
+
+    @Test
+    public void cgroupV1LimitIsUsedWhenThereIsNoV2Limit() throws IOException {
+        write("proc/meminfo", "MemAvailable:    8388608 kB\n");
+        write("sys/fs/cgroup/memory/memory.limit_in_bytes", 2048 * MB + "\n");
+        write("sys/fs/cgroup/memory/memory.usage_in_bytes", 1536 * MB + "\n");
+        write("sys/fs/cgroup/memory/memory.stat", "total_inactive_file " + 256 * MB + "\n");
+
+        assertEquals(768 * MB, AdmissionControl.availableMemoryBytes(root));
+    }
+
+    @Test
+    public void highLoadPerCpuHoldsLaunchesBack() throws IOException {
+        write("proc/meminfo", "MemAvailable:    8388608 kB\n");
+        int cpus = Runtime.getRuntime().availableProcessors();
+        write("proc/loadavg", (2.0 * cpus) + " 0.00 0.00 1/100 1\n");
+
+        assertEquals(2.0, AdmissionControl.loadPerCpu(root), 0.001);
+        assertNotNull(control(512, 1.5, 300).shortage(0));
+        assertNull(control(512, 2.5, 300).shortage(0));
+    }
+
+    @Test
+    public void launchHoldsItsReservationUntilTheBrowserHasStarted() throws Exception {
+        write("proc/meminfo", "MemAvailable:    2097152 kB\n");
+        AdmissionControl control = control(512, 1.5, 300);
+        List<String> duringLaunch = new ArrayList<>();
+
+        Object driver = control.launch(() -> {
+            try {
+                duringLaunch.addAll(Files.readAllLines(lockFile(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            return null;
+        });
+
+        assertNull(driver);
+        assertEquals(1, duringLaunch.size());
+        assertTrue(duringLaunch.get(0).startsWith(ProcessHandle.current().pid() + " "), duringLaunch.get(0));
+        assertEquals(0, Files.readAllLines(lockFile(), StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void launchGivesUpWhenCapacityDoesNotFreeUp() throws IOException {
+        write("proc/meminfo", "MemAvailable:    262144 kB\n");
+        AdmissionControl control = control(512, 1.5, 0);
+
+        TimeoutException timeout = assertThrows(TimeoutException.class, () -> control.launch(() -> {
+            throw new AssertionError("The browser must not be started");
+        }));
+        assertTrue(timeout.getMessage().contains("available memory 256 MB"), timeout.getMessage());
+    }
+
+    @Test
+    public void failedLaunchReleasesItsReservation() throws IOException {
+        write("proc/meminfo", "MemAvailable:    2097152 kB\n");
+        AdmissionControl control = control(512, 1.5, 300);
+        IllegalStateException failure = new IllegalStateException("driver did not start");
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> control.launch(() -> {
+            throw failure;
+        })));
+        assertEquals(0, Files.readAllLines(lockFile(), StandardCharsets.UTF_8).size());
+    }
+
+    private AdmissionControl control(long browserMemoryMb, double maxLoadPerCpu, long timeoutSeconds) {
+        return new AdmissionControl(true, browserMemoryMb, maxLoadPerCpu, timeoutSeconds, 0, root, lockFile());
+    }
+
+    private Path lockFile() {
+        return directory.resolve("admission.lock");
+    }
+
+    private void write(String file, String content) throws IOException {
+        Path path = root.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
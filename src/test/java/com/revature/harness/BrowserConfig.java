@@ -0,0 +1,56 @@
+package com.revature.harness;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Browser type, driver and browser binary resolved by BrowserDiscovery.
+ */
+public final class BrowserConfig {
+    public final String browserType;
+    public final String driverPath;
+    public final String binaryPath;
+    public final String driverVersion;
+    public final String browserVersion;
+    
+    public BrowserConfig(String browserType, String driverPath, String binaryPath) {
+        this(browserType, driverPath, binaryPath, null, null);
+    }
+    
+    public BrowserConfig(String browserType, String driverPath, String binaryPath,
+                         String driverVersion, String browserVersion) {
+        this.browserType = browserType;
+        this.driverPath = driverPath;
+        this.binaryPath = binaryPath;
+        this.driverVersion = driverVersion;
+        this.browserVersion = browserVersion;
+    }
+    
+    public BrowserConfig withVersions(String driverVersion, String browserVersion) {
+        return new BrowserConfig(browserType, driverPath, binaryPath, driverVersion, browserVersion);
+    }
+    
+    Map<String, String> toProperties() {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("browserType", browserType);
+        properties.put("driverPath", driverPath);
+        properties.put("binaryPath", binaryPath);
+        properties.put("driverVersion", driverVersion);
+        properties.put("browserVersion", browserVersion);
+        return properties;
+    }
+    
+    static BrowserConfig fromProperties(Properties properties) {
+        if (properties == null || properties.getProperty("browserType") == null
+                || properties.getProperty("driverPath") == null) {
+            return null;
+        }
+        return new BrowserConfig(
+            properties.getProperty("browserType"),
+            properties.getProperty("driverPath"),
+            properties.getProperty("binaryPath"),
+            properties.getProperty("driverVersion"),
+            properties.getProperty("browserVersion"));
+    }
+}
@@ -0,0 +1,512 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds a browser driver and matching browser binary, first in the project's
+ * "driver" folder and then in system locations.
+ *
+ * Discovery cannot change during a run, so it is resolved once per JVM and
+ * persisted with DiscoveryCache between runs.
+ *
+ * For Chrome, the standalone chrome-headless-shell build is preferred: it
+ * starts faster and uses less memory than a full browser, and the harness
+ * only runs headless. Besides the system locations, the versions Selenium
+ * Manager downloaded to its cache (<cache>/<product>/<platform>/<version>/)
+ * are considered, newest first. The browser and driver are chosen together:
+ * the first browser, in that order, for which some driver has the same major
+ * version, so an outdated headless shell gives way to full Chrome with a
+ * matching driver. Only when no driver matches any browser does detection
+ * fail, at once rather than the driver start timing out.
+ *
+ * Configuration (system properties):
+ *   selenium.headlessShell - set to "false" to prefer full Chrome over chrome-headless-shell
+ */
+public class BrowserDiscovery {
+    private static final Logger logger = TestDiagnostics.logger(BrowserDiscovery.class);
+    
+    // Architecture and system detection
+    public static final String OS_NAME = System.getProperty("os.name").toLowerCase();
+    public static final String OS_ARCH = System.getProperty("os.arch").toLowerCase();
+    public static final boolean IS_ARM = OS_ARCH.contains("aarch64") || OS_ARCH.contains("arm");
+    public static final boolean IS_WINDOWS = OS_NAME.contains("windows");
+    public static final boolean IS_LINUX = OS_NAME.contains("linux");
+    public static final boolean IS_MAC = OS_NAME.contains("mac");
+    
+    private static volatile BrowserConfig discoveredBrowserConfig;
+    private static final DiscoveryCache DISCOVERY_CACHE = DiscoveryCache.fromSystemProperties();
+    private static final boolean PREFER_HEADLESS_SHELL =
+        Boolean.parseBoolean(System.getProperty("selenium.headlessShell", "true"));
+    private static final Pattern VERSION = Pattern.compile("(\\d+)\\.\\d+\\.\\d+");
+    
+    private BrowserDiscovery() {
+    }
+    
+    /**
+     * Returns the browser configuration for this machine, resolving it on first
+     * use and from the on-disk cache when the candidate paths are unchanged.
+     */
+    public static BrowserConfig detect() {
+        BrowserConfig config = discoveredBrowserConfig;
+        if (config == null) {
+            synchronized (BrowserDiscovery.class) {
+                config = discoveredBrowserConfig;
+                if (config == null) {
+                    config = loadOrDiscoverBrowserConfig();
+                    discoveredBrowserConfig = config;
+                }
+            }
+        }
+        return config;
+    }
+    
+    private static BrowserConfig loadOrDiscoverBrowserConfig() {
+        logger.fine("=== BROWSER AND DRIVER DETECTION ===");
+        
+        String fingerprint = DiscoveryCache.fingerprint(OS_NAME, OS_ARCH, discoveryCandidatePaths());
+        BrowserConfig cached = BrowserConfig.fromProperties(DISCOVERY_CACHE.load(fingerprint));
+        if (cached != null && new File(cached.driverPath).canExecute()) {
+            logger.info("Using cached " + cached.browserType + " driver: " + cached.driverPath);
+            checkVersionsMatch(cached);
+            return cached;
+        }
+        
+        BrowserConfig discovered = discover();
+        BrowserConfig versioned = discovered.withVersions(
+            readVersion(discovered.driverPath), readVersion(discovered.binaryPath));
+        logger.info("Driver version: " + versioned.driverVersion);
+        logger.info("Browser version: " + versioned.browserVersion);
+        checkVersionsMatch(versioned);
+        DISCOVERY_CACHE.store(fingerprint, versioned.toProperties());
+        return versioned;
+    }
+    
+    /**
+     * Fails when the driver and browser report different major versions, which
+     * the driver would otherwise only reveal by never starting a session.
+     */
+    static void checkVersionsMatch(BrowserConfig config) {
+        String driverMajor = majorVersion(config.driverVersion);
+        String browserMajor = majorVersion(config.browserVersion);
+        if (driverMajor != null && browserMajor != null && !driverMajor.equals(browserMajor)) {
+            throw new RuntimeException("The " + config.browserType + " driver " + config.driverPath
+                + " (" + config.driverVersion + ") does not support the browser " + config.binaryPath
+                + " (" + config.browserVersion + "); install a driver for version " + browserMajor);
+        }
+    }
+    
+    static String majorVersion(String version) {
+        if (version == null) {
+            return null;
+        }
+        Matcher matcher = VERSION.matcher(version);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+    
+    /**
+     * Probes the driver folder and system locations without consulting any cache.
+     */
+    public static BrowserConfig discover() {
+        // First check for an Edge driver in project's "driver" folder
+        BrowserConfig projectDriverConfig = checkProjectEdgeDriver();
+        if (projectDriverConfig != null) {
+            return projectDriverConfig;
+        }
+        
+        // Then pair Chrome drivers, the project's first, with Chrome binaries
+        List<String> chromeDrivers = new ArrayList<>(projectChromeDrivers());
+        for (String driverPath : chromeDriverPaths()) {
+            File driverFile = new File(driverPath);
+            if (driverFile.exists() && driverFile.canExecute() && !chromeDrivers.contains(driverPath)) {
+                chromeDrivers.add(driverPath);
+            }
+        }
+        List<String> chromeBinaries = new ArrayList<>();
+        for (String path : chromeBinaryPaths()) {
+            if (new File(path).exists()) {
+                chromeBinaries.add(path);
+            }
+        }
+        BrowserConfig chromeConfig = pairChrome(chromeDrivers, chromeBinaries, BrowserDiscovery::installedVersion);
+        if (chromeConfig != null) {
+            return chromeConfig;
+        }
+        
+        // Then check system-installed Edge drivers
+        BrowserConfig systemDriverConfig = checkSystemEdgeDrivers();
+        if (systemDriverConfig != null) {
+            return systemDriverConfig;
+        }
+        
+        if (!chromeDrivers.isEmpty()) {
+            throw new RuntimeException("No Chrome driver matches the major version of any Chrome browser: drivers "
+                + describeVersions(chromeDrivers) + ", browsers " + describeVersions(chromeBinaries));
+        }
+        throw new RuntimeException("No compatible browser driver found");
+    }
+    
+    /**
+     * The first browser, in order of preference, with a driver of the same
+     * major version. Pairs whose versions cannot be read are used if no pair is
+     * known to match, as before versions were compared. Returns null when
+     * every driver is known not to match every browser.
+     */
+    static BrowserConfig pairChrome(List<String> drivers, List<String> binaries, Function<String, String> versions) {
+        if (drivers.isEmpty()) {
+            return null;
+        }
+        if (binaries.isEmpty()) {
+            logger.fine("Chrome binary not found, using default");
+            return new BrowserConfig("chrome", drivers.get(0), null);
+        }
+        // Null when the version is unknown; each executable is asked only once
+        Map<String, String> majors = new HashMap<>();
+        for (String path : drivers) {
+            majors.put(path, majorVersion(versions.apply(path)));
+        }
+        for (String path : binaries) {
+            majors.put(path, majorVersion(versions.apply(path)));
+        }
+        BrowserConfig unverified = null;
+        for (String binary : binaries) {
+            String browserMajor = majors.get(binary);
+            for (String driver : drivers) {
+                String driverMajor = majors.get(driver);
+                if (browserMajor != null && browserMajor.equals(driverMajor)) {
+                    logger.fine(() -> "Found Chrome driver " + driver + " for " + binary + " (version " + browserMajor + ")");
+                    return new BrowserConfig("chrome", driver, binary);
+                }
+                if (unverified == null && (browserMajor == null || driverMajor == null)) {
+                    unverified = new BrowserConfig("chrome", driver, binary);
+                }
+            }
+        }
+        if (unverified != null) {
+            BrowserConfig chosen = unverified;
+            logger.fine(() -> "Using Chrome driver " + chosen.driverPath + " for " + chosen.binaryPath
+                + " without a known version match");
+        }
+        return unverified;
+    }
+    
+    private static String describeVersions(List<String> paths) {
+        List<String> described = new ArrayList<>();
+        for (String path : paths) {
+            described.add(path + " (" + installedVersion(path) + ")");
+        }
+        return described.toString();
+    }
+    
+    private static List<String> discoveryCandidatePaths() {
+        List<String> paths = new ArrayList<>();
+        File driverFolder = new File("driver");
+        paths.add(driverFolder.getAbsolutePath());
+        for (String driverName : projectDriverNames()) {
+            paths.add(new File(driverFolder, driverName).getAbsolutePath());
+        }
+        paths.addAll(chromeDriverPaths());
+        paths.addAll(Arrays.asList(edgeDriverPaths()));
+        paths.addAll(chromeBinaryPaths());
+        paths.addAll(Arrays.asList(edgeBinaryPaths()));
+        // A download adds a version directory, which changes the platform directory
+        for (String product : new String[]{"chromedriver", "chrome-headless-shell", "chrome"}) {
+            paths.add(new File(new File(seleniumCacheRoot(), product), seleniumCachePlatform()).getAbsolutePath());
+        }
+        return paths;
+    }
+    
+    private static List<String> projectDriverNames() {
+        List<String> names = new ArrayList<>(Arrays.asList(edgeDriverNames()));
+        names.addAll(Arrays.asList(chromeDriverNames()));
+        return names;
+    }
+    
+    private static String[] edgeDriverNames() {
+        return IS_WINDOWS ? 
+            new String[]{"msedgedriver.exe", "edgedriver.exe"} :
+            new String[]{"msedgedriver", "edgedriver"};
+    }
+    
+    private static String[] chromeDriverNames() {
+        return IS_WINDOWS ? 
+            new String[]{"chromedriver.exe"} :
+            new String[]{"chromedriver"};
+    }
+    
+    private static BrowserConfig checkProjectEdgeDriver() {
+        File driverFolder = new File("driver");
+        if (!driverFolder.exists() || !driverFolder.isDirectory()) {
+            logger.fine("No 'driver' folder found in project root");
+            return null;
+        }
+        
+        logger.fine("Found 'driver' folder, checking for executables...");
+        
+        // Check for Edge driver first (since you mentioned x86 machines will have edge driver)
+        for (String driverName : edgeDriverNames()) {
+            File driverFile = new File(driverFolder, driverName);
+            if (driverFile.exists()) {
+                makeExecutable(driverFile);
+                if (driverFile.canExecute()) {
+                    logger.fine(() -> "Found Edge driver: " + driverFile.getAbsolutePath());
+                    return new BrowserConfig("edge", driverFile.getAbsolutePath(), findEdgeBinary());
+                }
+            }
+        }
+        
+        logger.fine("No Edge driver found in 'driver' folder");
+        return null;
+    }
+    
+    private static List<String> projectChromeDrivers() {
+        List<String> drivers = new ArrayList<>();
+        File driverFolder = new File("driver");
+        for (String driverName : chromeDriverNames()) {
+            File driverFile = new File(driverFolder, driverName);
+            if (driverFile.exists()) {
+                makeExecutable(driverFile);
+                if (driverFile.canExecute()) {
+                    logger.fine(() -> "Found Chrome driver: " + driverFile.getAbsolutePath());
+                    drivers.add(driverFile.getAbsolutePath());
+                }
+            }
+        }
+        return drivers;
+    }
+    
+    private static List<String> chromeDriverPaths() {
+        // Chrome driver paths (prioritized for ARM systems)
+        String[] chromeDriverPaths = {
+            "/usr/bin/chromedriver",
+            "/usr/local/bin/chromedriver",
+            "/snap/bin/chromedriver",
+            System.getProperty("user.home") + "/.cache/selenium/chromedriver/linux64/chromedriver",
+            "/opt/chromedriver/chromedriver"
+        };
+        
+        if (IS_WINDOWS) {
+            chromeDriverPaths = new String[]{
+                "C:\\Program Files\\Google\\Chrome\\Application\\chromedriver.exe",
+                "C:\\ChromeDriver\\chromedriver.exe",
+                "chromedriver.exe" // In PATH
+            };
+        }
+        List<String> paths = new ArrayList<>(Arrays.asList(chromeDriverPaths));
+        paths.addAll(seleniumCacheExecutables("chromedriver", chromeDriverNames()[0]));
+        return paths;
+    }
+    
+    private static String[] edgeDriverPaths() {
+        if (!IS_WINDOWS) {
+            return new String[0];
+        }
+        return new String[]{
+            "C:\\Program Files (x86)\\Microsoft\\Edge\\Application\\msedgedriver.exe",
+            "msedgedriver.exe" // In PATH
+        };
+    }
+    
+    private static BrowserConfig checkSystemEdgeDrivers() {
+        logger.fine("Checking system-installed Edge drivers...");
+        
+        for (String driverPath : edgeDriverPaths()) {
+            File driverFile = new File(driverPath);
+            if (driverFile.exists() && driverFile.canExecute()) {
+                logger.fine(() -> "Found system Edge driver: " + driverPath);
+                return new BrowserConfig("edge", driverPath, findEdgeBinary());
+            }
+        }
+        
+        return null;
+    }
+    
+    private static List<String> chromeBinaryPaths() {
+        List<String> paths = new ArrayList<>();
+        if (PREFER_HEADLESS_SHELL) {
+            paths.addAll(headlessShellPaths());
+        }
+        paths.addAll(Arrays.asList(fullChromePaths()));
+        paths.addAll(seleniumCacheExecutables("chrome", cachedChromeExecutable()));
+        if (!PREFER_HEADLESS_SHELL) {
+            paths.addAll(headlessShellPaths());
+        }
+        return paths;
+    }
+    
+    private static List<String> headlessShellPaths() {
+        List<String> paths = new ArrayList<>();
+        if (!IS_WINDOWS) {
+            paths.add("/usr/bin/chrome-headless-shell");
+            paths.add("/usr/local/bin/chrome-headless-shell");
+            paths.add("/opt/chrome-headless-shell/chrome-headless-shell");
+        }
+        paths.addAll(seleniumCacheExecutables("chrome-headless-shell",
+            IS_WINDOWS ? "chrome-headless-shell.exe" : "chrome-headless-shell"));
+        return paths;
+    }
+    
+    private static String cachedChromeExecutable() {
+        if (IS_WINDOWS) {
+            return "chrome.exe";
+        }
+        return IS_MAC ? "Google Chrome for Testing.app/Contents/MacOS/Google Chrome for Testing" : "chrome";
+    }
+    
+    private static String[] fullChromePaths() {
+        String[] chromePaths;
+        
+        if (IS_WINDOWS) {
+            chromePaths = new String[]{
+                "C:\\Program Files\\Google\\Chrome\\Application\\chrome.exe",
+                "C:\\Program Files (x86)\\Google\\Chrome\\Application\\chrome.exe"
+            };
+        } else if (IS_MAC) {
+            chromePaths = new String[]{
+                "/Applications/Google Chrome.app/Contents/MacOS/Google Chrome"
+            };
+        } else {
+            chromePaths = new String[]{
+                "/usr/bin/chromium-browser",
+                "/usr/bin/chromium",
+                "/usr/bin/google-chrome",
+                "/snap/bin/chromium"
+            };
+        }
+        return chromePaths;
+    }
+    
+    // Selenium Manager's download cache (SE_CACHE_PATH, default ~/.cache/selenium)
+    private static File seleniumCacheRoot() {
+        String path = System.getenv("SE_CACHE_PATH");
+        if (path == null || path.isEmpty()) {
+            path = System.getProperty("user.home") + File.separator + ".cache" + File.separator + "selenium";
+        }
+        return new File(path);
+    }
+    
+    private static String seleniumCachePlatform() {
+        if (IS_WINDOWS) {
+            return "win64";
+        }
+        if (IS_MAC) {
+            return IS_ARM ? "mac-arm64" : "mac-x64";
+        }
+        return "linux64";
+    }
+    
+    /**
+     * Paths of an executable in every cached version of a product, newest first.
+     */
+    private static List<String> seleniumCacheExecutables(String product, String executable) {
+        File platform = new File(new File(seleniumCacheRoot(), product), seleniumCachePlatform());
+        File[] versions = platform.listFiles(File::isDirectory);
+        List<String> paths = new ArrayList<>();
+        if (versions == null) {
+            return paths;
+        }
+        Arrays.sort(versions, (a, b) -> compareVersions(b.getName(), a.getName()));
+        for (File version : versions) {
+            paths.add(new File(version, executable).getAbsolutePath());
+        }
+        return paths;
+    }
+    
+    static int compareVersions(String a, String b) {
+        String[] left = a.split("\\.");
+        String[] right = b.split("\\.");
+        for (int i = 0; i < Math.max(left.length, right.length); i++) {
+            int difference = Long.compare(versionPart(left, i), versionPart(right, i));
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+    
+    private static long versionPart(String[] parts, int index) {
+        try {
+            return index < parts.length ? Long.parseLong(parts[index]) : 0;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    // Cached downloads are named after their version, which saves starting the executable
+    private static String installedVersion(String executablePath) {
+        File parent = new File(executablePath).getParentFile();
+        while (parent != null) {
+            if (parent.getParentFile() != null && parent.getParentFile().getName().equals(seleniumCachePlatform())
+                    && majorVersion(parent.getName()) != null) {
+                return parent.getName();
+            }
+            parent = parent.getParentFile();
+        }
+        return readVersion(executablePath);
+    }
+    
+    private static String[] edgeBinaryPaths() {
+        if (!IS_WINDOWS) {
+            return new String[0];
+        }
+        return new String[]{
+            "C:\\Program Files (x86)\\Microsoft\\Edge\\Application\\msedge.exe",
+            "C:\\Program Files\\Microsoft\\Edge\\Application\\msedge.exe"
+        };
+    }
+    
+    private static String findEdgeBinary() {
+        for (String path : edgeBinaryPaths()) {
+            if (new File(path).exists()) {
+                logger.fine(() -> "Found Edge binary: " + path);
+                return path;
+            }
+        }
+        
+        logger.fine("Edge binary not found, using default");
+        return null;
+    }
+    
+    private static String readVersion(String executablePath) {
+        if (executablePath == null) {
+            return null;
+        }
+        try {
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(executablePath, "--version")
+                .redirectErrorStream(true)
+                .start();
+            Duration timeout = AdaptiveTimeouts.shared().timeout(AdaptiveTimeouts.PROCESS, Duration.ofSeconds(5));
+            if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                return null;
+            }
+            AdaptiveTimeouts.shared().record(AdaptiveTimeouts.PROCESS, start);
+            String output = new String(process.getInputStream().readAllBytes()).trim();
+            return output.isEmpty() ? null : output.split("\\R")[0];
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
+    private static void makeExecutable(File file) {
+        if (!file.canExecute()) {
+            try {
+                file.setExecutable(true);
+                logger.fine(() -> "Made executable: " + file.getAbsolutePath());
+            } catch (Exception e) {
+                logger.warning("Could not make executable: " + e.getMessage());
+            }
+        }
+    }
+}
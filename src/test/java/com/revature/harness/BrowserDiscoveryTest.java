@@ -0,0 +1,108 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class BrowserDiscoveryTest {
+    @Test
+    public void comparesVersionsNumerically() {
+        assertTrue(BrowserDiscovery.compareVersions("120.0.6099.109", "99.0.4844.51") > 0);
+        assertTrue(BrowserDiscovery.compareVersions("120.0.6099.71", "120.0.6099.109") < 0);
+        assertEquals(0, BrowserDiscovery.compareVersions("120.0.6099.109", "120.0.6099.109"));
+    }
+
+    @Test
+    public void missingVersionPartsCountAsZero() {
+        assertEquals(0, BrowserDiscovery.compareVersions("120", "120.0.0"));
+        assertTrue(BrowserDiscovery.compareVersions("120.0.1", "120") > 0);
+    }
+
+    @Test
+    public void nonNumericVersionsSortBeforeNumericOnes() {
+        assertTrue(BrowserDiscovery.compareVersions("latest", "1.0.0") < 0);
+        List<String> versions = new ArrayList<>(Arrays.asList("99.0.4844.51", "beta", "120.0.6099.109"));
+        versions.sort((a, b) -> BrowserDiscovery.compareVersions(b, a));
+        assertEquals(Arrays.asList("120.0.6099.109", "99.0.4844.51", "beta"), versions);
+    }
+
+    @Test
+    public void majorVersionIsReadFromVersionOutput() {
+        assertEquals("120", BrowserDiscovery.majorVersion("ChromeDriver 120.0.6099.109 (3419140ab665)"));
+        assertEquals("120", BrowserDiscovery.majorVersion("Google Chrome 120.0.6099.109"));
+        assertNull(BrowserDiscovery.majorVersion("Google Chrome"));
+        assertNull(BrowserDiscovery.majorVersion(null));
+    }
+
+    @Test
+    public void pairsTheFirstBrowserWithADriverOfTheSameMajorVersion() {
+        Map<String, String> versions = new HashMap<>();
+        versions.put("driver-119", "ChromeDriver 119.0.6045.105");
+        versions.put("driver-120", "ChromeDriver 120.0.6099.109");
+        versions.put("chrome-121", "Google Chrome 121.0.6167.85");
+        versions.put("chrome-120", "Google Chrome 120.0.6099.129");
+
+        BrowserConfig config = BrowserDiscovery.pairChrome(Arrays.asList("driver-119", "driver-120"),
+            Arrays.asList("chrome-121", "chrome-120"), versions::get);
+
+        assertEquals("driver-120", config.driverPath);
+        assertEquals("chrome-120", config.binaryPath);
+    }
+
+    @Test
+    public void prefersAKnownMatchOverAnUnknownVersion() {
+        Map<String, String> versions = new HashMap<>();
+        versions.put("driver-120", "ChromeDriver 120.0.6099.109");
+        versions.put("chrome-120", "Google Chrome 120.0.6099.129");
+
+        BrowserConfig config = BrowserDiscovery.pairChrome(Arrays.asList("driver-unknown", "driver-120"),
+            Arrays.asList("chrome-120"), versions::get);
+
+        assertEquals("driver-120", config.driverPath);
+    }
+
+    @Test
+    public void fallsBackToAPairWithAnUnknownVersion() {
+        Map<String, String> versions = new HashMap<>();
+        versions.put("driver-119", "ChromeDriver 119.0.6045.105");
+        versions.put("chrome-120", "Google Chrome 120.0.6099.129");
+
+        BrowserConfig config = BrowserDiscovery.pairChrome(Arrays.asList("driver-119", "driver-unknown"),
+            Arrays.asList("chrome-120"), versions::get);
+
+        assertEquals("driver-unknown", config.driverPath);
+        assertEquals("chrome-120", config.binaryPath);
+    }
+
+    @Test
+    public void returnsNullWhenNoDriverCanMatch() {
+        Map<String, String> versions = new HashMap<>();
+        versions.put("driver-119", "ChromeDriver 119.0.6045.105");
+        versions.put("chrome-120", "Google Chrome 120.0.6099.129");
+
+        assertNull(BrowserDiscovery.pairChrome(Collections.singletonList("driver-119"),
+            Collections.singletonList("chrome-120"), versions::get));
+        assertNull(BrowserDiscovery.pairChrome(Collections.emptyList(),
+            Collections.singletonList("chrome-120"), versions::get));
+    }
+
+    @Test
+    public void usesTheFirstDriverWhenNoBrowserIsFound() {
+        BrowserConfig config = BrowserDiscovery.pairChrome(Arrays.asList("driver-a", "driver-b"),
+            Collections.emptyList(), path -> {
+                throw new AssertionError("No versions are needed without a browser");
+            });
+
+        assertEquals("chrome", config.browserType);
+        assertEquals("driver-a", config.driverPath);
+        assertNull(config.binaryPath);
+    }
+}
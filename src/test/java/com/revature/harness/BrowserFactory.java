@@ -0,0 +1,309 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.chromium.HasCdp;
+import org.openqa.selenium.edge.EdgeDriver;
+import org.openqa.selenium.edge.EdgeDriverService;
+import org.openqa.selenium.edge.EdgeOptions;
+import org.openqa.selenium.logging.LogType;
+import org.openqa.selenium.logging.LoggingPreferences;
+import org.openqa.selenium.remote.Augmenter;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.service.DriverService;
+
+/**
+ * Launches headless Chrome or Edge sessions for a BrowserConfig.
+ *
+ * Each session gets its own profile directory from BrowserProfiles, deleted
+ * when the session is quit. In warm-start mode all sessions share one driver
+ * process per driver executable (DriverServices) and start from a cloned,
+ * already-initialized profile template. Window size, extra arguments and
+ * blocked resources come from the selected LaunchProfile.
+ *
+ * Configuration (system properties):
+ *   selenium.bidi - set to "false" for drivers that reject the webSocketUrl capability
+ *   selenium.warm - set to "true" for warm-start mode (BatchGrader enables it by default)
+ */
+public class BrowserFactory {
+    private static final Logger logger = TestDiagnostics.logger(BrowserFactory.class);
+    // The profile each session was launched with; entries go with their sessions
+    private static final Map<WebDriver, LaunchProfile> LAUNCH_PROFILES =
+        Collections.synchronizedMap(new WeakHashMap<>());
+    
+    private static final long MIN_DEV_SHM_BYTES = 1024L * 1024 * 1024;
+    private static final boolean BIDI_ENABLED =
+        Boolean.parseBoolean(System.getProperty("selenium.bidi", "true"));
+    // A driver service starts well within a whole launch, so launch history bounds it safely
+    private static final Duration SERVICE_START_TIMEOUT =
+        AdaptiveTimeouts.shared().timeout(AdaptiveTimeouts.LAUNCH, Duration.ofSeconds(30));
+    
+    private BrowserFactory() {
+    }
+    
+    /**
+     * Starts a browser session for the configuration with the launch profile
+     * selected by system properties.
+     */
+    public static WebDriver create(BrowserConfig config) {
+        return create(config, LaunchProfile.fromSystemProperties());
+    }
+    
+    /**
+     * Starts a browser session for the configuration, with a new driver
+     * service unless warm-start mode is on.
+     */
+    public static WebDriver create(BrowserConfig config, LaunchProfile launchProfile) {
+        logger.fine("=== CREATING WEBDRIVER ===");
+        logger.info("Starting " + config.browserType + " with driver " + config.driverPath
+            + " and binary " + config.binaryPath + " (launch profile " + launchProfile.name() + ")");
+        
+        boolean warm = isWarmStart();
+        File profile;
+        try {
+            profile = BrowserProfiles.create(config, warm);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create a browser profile", e);
+        }
+        
+        WebDriver driver;
+        try {
+            if ("edge".equals(config.browserType)) {
+                driver = createEdgeDriver(config, launchProfile, profile, warm);
+            } else {
+                driver = createChromeDriver(config, launchProfile, profile, warm);
+            }
+            blockUrls(driver, launchProfile.blockedUrls());
+        } catch (RuntimeException e) {
+            BrowserProfiles.discard(profile);
+            throw e;
+        }
+        BrowserProfiles.register(driver, profile);
+        LAUNCH_PROFILES.put(driver, launchProfile);
+        if (!warm) {
+            // Each cold session started a driver of its own; DriverServices records the shared one
+            ResourceLedger.trackDriverProcesses(config.driverPath);
+        }
+        return driver;
+    }
+    
+    /**
+     * The launch profile a session was created with, or null for a session
+     * this factory did not create.
+     */
+    public static LaunchProfile launchProfileOf(WebDriver driver) {
+        return LAUNCH_PROFILES.get(driver);
+    }
+
+    private static boolean isWarmStart() {
+        // Read on every launch so BatchGrader can switch it on before the first session
+        return Boolean.parseBoolean(System.getProperty("selenium.warm", "false"));
+    }
+    
+    /**
+     * Quitting a ChromeDriver/EdgeDriver stops its driver service, so sessions
+     * on a shared service are plain remote sessions, augmented so BiDi still works.
+     */
+    private static WebDriver createOnSharedService(BrowserConfig config, Supplier<? extends DriverService> factory,
+            Capabilities options) {
+        DriverService service = DriverServices.shared(config.driverPath, factory);
+        return new Augmenter().augment(new RemoteWebDriver(service.getUrl(), options));
+    }
+    
+    private static WebDriver createChromeDriver(BrowserConfig config, LaunchProfile launchProfile, File profile,
+            boolean warm) {
+        // Set driver path
+        System.setProperty("webdriver.chrome.driver", config.driverPath);
+        
+        ChromeOptions options = new ChromeOptions();
+        
+        // Set binary if found
+        if (config.binaryPath != null) {
+            options.setBinary(config.binaryPath);
+        }
+        
+        // Add arguments based on architecture and environment
+        options.addArguments(getChromeArguments(launchProfile, profile));
+        
+        // Enable logging
+        LoggingPreferences logPrefs = new LoggingPreferences();
+        logPrefs.enable(LogType.BROWSER, Level.ALL);
+        options.setCapability("goog:loggingPrefs", logPrefs);
+        
+        // Enable WebDriver BiDi so console output can be streamed (see ConsoleCapture)
+        if (BIDI_ENABLED) {
+            options.setCapability("webSocketUrl", true);
+        }
+        
+        if (warm) {
+            return createOnSharedService(config, () -> createChromeService(config), options);
+        }
+        return new ChromeDriver(createChromeService(config), options);
+    }
+    
+    private static ChromeDriverService createChromeService(BrowserConfig config) {
+        ChromeDriverService.Builder serviceBuilder = new ChromeDriverService.Builder()
+            .usingDriverExecutable(new File(config.driverPath))
+            .withTimeout(SERVICE_START_TIMEOUT);
+        
+        return serviceBuilder.build();
+    }
+    
+    private static WebDriver createEdgeDriver(BrowserConfig config, LaunchProfile launchProfile, File profile,
+            boolean warm) {
+        // Set driver path
+        System.setProperty("webdriver.edge.driver", config.driverPath);
+        
+        EdgeOptions options = new EdgeOptions();
+        
+        // Set binary if found
+        if (config.binaryPath != null) {
+            options.setBinary(config.binaryPath);
+        }
+        
+        // Add arguments based on architecture and environment
+        options.addArguments(getEdgeArguments(launchProfile, profile));
+        
+        // Enable logging
+        LoggingPreferences logPrefs = new LoggingPreferences();
+        logPrefs.enable(LogType.BROWSER, Level.ALL);
+        options.setCapability("ms:loggingPrefs", logPrefs);
+        
+        // Enable WebDriver BiDi so console output can be streamed (see ConsoleCapture)
+        if (BIDI_ENABLED) {
+            options.setCapability("webSocketUrl", true);
+        }
+        
+        if (warm) {
+            return createOnSharedService(config, () -> createEdgeService(config), options);
+        }
+        return new EdgeDriver(createEdgeService(config), options);
+    }
+    
+    private static EdgeDriverService createEdgeService(BrowserConfig config) {
+        EdgeDriverService.Builder serviceBuilder = new EdgeDriverService.Builder()
+            .usingDriverExecutable(new File(config.driverPath))
+            .withTimeout(SERVICE_START_TIMEOUT);
+        
+        return serviceBuilder.build();
+    }
+    
+    /**
+     * Stops the browser from fetching matching URLs in the session's current
+     * tab. Blocked requests fail at once instead of going to the network.
+     * ContextMultiplexer calls this again for each tab it opens.
+     */
+    static void blockUrls(WebDriver driver, List<String> patterns) {
+        if (patterns.isEmpty()) {
+            return;
+        }
+        if (!(driver instanceof HasCdp)) {
+            logger.warning("Browser does not support URL blocking; loading all resources");
+            return;
+        }
+        HasCdp cdp = (HasCdp) driver;
+        cdp.executeCdpCommand("Network.enable", Collections.emptyMap());
+        cdp.executeCdpCommand("Network.setBlockedURLs", Collections.singletonMap("urls", patterns));
+        logger.fine(() -> "Blocking " + patterns);
+    }
+    
+    private static List<String> getChromeArguments(LaunchProfile launchProfile, File profile) {
+        return getCommonBrowserArguments(launchProfile, profile);
+    }
+    
+    private static List<String> getEdgeArguments(LaunchProfile launchProfile, File profile) {
+        return getCommonBrowserArguments(launchProfile, profile);
+    }
+    
+    private static List<String> getCommonBrowserArguments(LaunchProfile launchProfile, File profile) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+            "--headless=new",
+            "--no-sandbox",
+            "--disable-gpu",
+            "--window-size=" + launchProfile.windowSize(),
+            "--disable-extensions",
+            "--disable-web-security",
+            "--allow-file-access-from-files",
+            "--allow-running-insecure-content",
+            "--user-data-dir=" + profile.getAbsolutePath(),
+            "--disable-features=TranslateUI,VizDisplayCompositor",
+            "--disable-background-timer-throttling",
+            "--disable-backgrounding-occluded-windows",
+            "--disable-renderer-backgrounding"
+        ));
+        
+        // Small /dev/shm (Docker defaults to 64 MB) crashes renderers; otherwise keep shared memory in RAM
+        if (isDevShmSmall()) {
+            args.add("--disable-dev-shm-usage");
+        }
+        
+        // Add ARM-specific arguments
+        if (BrowserDiscovery.IS_ARM) {
+            args.add("--use-gl=swiftshader");
+            args.add("--disable-software-rasterizer");
+        }
+        
+        args.addAll(launchProfile.arguments());
+        return mergeFeatureLists(args);
+    }
+    
+    private static boolean isDevShmSmall() {
+        File shm = new File("/dev/shm");
+        return !shm.isDirectory() || shm.getTotalSpace() < MIN_DEV_SHM_BYTES;
+    }
+    
+    /**
+     * Chrome only honours the last --disable-features/--enable-features switch,
+     * so repeated switches are combined into one at the first one's position.
+     */
+    static List<String> mergeFeatureLists(List<String> args) {
+        Map<String, Set<String>> features = new LinkedHashMap<>();
+        List<String> merged = new ArrayList<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String name = equals < 0 ? arg : arg.substring(0, equals);
+            if (!"--disable-features".equals(name) && !"--enable-features".equals(name)) {
+                merged.add(arg);
+                continue;
+            }
+            Set<String> values = features.get(name);
+            if (values == null) {
+                values = new LinkedHashSet<>();
+                features.put(name, values);
+                merged.add(name);
+            }
+            String list = equals < 0 ? "" : arg.substring(equals + 1);
+            for (String feature : list.split(",")) {
+                if (!feature.trim().isEmpty()) {
+                    values.add(feature.trim());
+                }
+            }
+        }
+        for (int i = 0; i < merged.size(); i++) {
+            Set<String> values = features.get(merged.get(i));
+            if (values != null) {
+                merged.set(i, merged.get(i) + "=" + String.join(",", values));
+            }
+        }
+        return merged;
+    }
+}
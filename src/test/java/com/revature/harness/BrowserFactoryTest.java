@@ -0,0 +1,52 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class BrowserFactoryTest {
+    @Test
+    public void leavesArgumentsWithoutFeatureListsAlone() {
+        List<String> args = Arrays.asList("--headless=new", "--no-sandbox", "--window-size=800,600");
+        assertEquals(args, BrowserFactory.mergeFeatureLists(args));
+    }
+
+    @Test
+    public void mergesRepeatedSwitchesAtTheFirstPosition() {
+        List<String> merged = BrowserFactory.mergeFeatureLists(Arrays.asList(
+            "--disable-features=Translate",
+            "--no-sandbox",
+            "--disable-features=OptimizationHints,MediaRouter"));
+        assertEquals(Arrays.asList(
+            "--disable-features=Translate,OptimizationHints,MediaRouter",
+            "--no-sandbox"), merged);
+    }
+
+    @Test
+    public void keepsDisableAndEnableListsApart() {
+        List<String> merged = BrowserFactory.mergeFeatureLists(Arrays.asList(
+            "--enable-features=NetworkService",
+            "--disable-features=Translate",
+            "--enable-features=VizDisplayCompositor"));
+        assertEquals(Arrays.asList(
+            "--enable-features=NetworkService,VizDisplayCompositor",
+            "--disable-features=Translate"), merged);
+    }
+
+    @Test
+    public void dropsDuplicateAndBlankFeatures() {
+        List<String> merged = BrowserFactory.mergeFeatureLists(Arrays.asList(
+            "--disable-features=Translate, MediaRouter,",
+            "--disable-features=MediaRouter,,Translate"));
+        assertEquals(Arrays.asList("--disable-features=Translate,MediaRouter"), merged);
+    }
+
+    @Test
+    public void launchArgumentsKeepTheCommasOfTheirValues() {
+        assertEquals(Arrays.asList("--disable-features=A,B", "--window-size=800,600", "--mute-audio"),
+            LaunchProfile.splitArguments("--disable-features=A,B,--window-size=800,600, --mute-audio"));
+        assertEquals(Arrays.asList("--no-sandbox"), LaunchProfile.splitArguments("--no-sandbox,"));
+    }
+}
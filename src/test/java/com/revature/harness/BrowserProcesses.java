@@ -0,0 +1,157 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Finds the OS processes of a browser session.
+ *
+ * WebDriver does not expose the browser's process id, but every session has
+ * its own profile directory (see BrowserProfiles), so the browser process is
+ * the one started with that --user-data-dir. Renderers and other helpers are
+ * its descendants. Memory figures come from /proc and are only available on
+ * Linux.
+ *
+ * Finding the browser means reading every process on the host, so the memory
+ * checks remember each session's browser process until the session is quit,
+ * and then read only that process's tree.
+ */
+class BrowserProcesses {
+    private static final Logger logger = TestDiagnostics.logger(BrowserProcesses.class);
+    // Where the kernel lists each thread's children, a process tree can be read without a full scan
+    private static final boolean CHILDREN_FILES = Files.exists(Paths.get("/proc/thread-self/children"));
+    // Browser process by profile directory; a profile belongs to one session
+    private static final Map<File, ProcessHandle> BROWSERS = new ConcurrentHashMap<>();
+
+    private BrowserProcesses() {
+    }
+
+    /**
+     * The main browser process of a session, if it can be found.
+     */
+    static Optional<ProcessHandle> browser(File profile) {
+        String userDataDir = "--user-data-dir=" + profile.getAbsolutePath();
+        return ProcessHandle.allProcesses()
+            .filter(process -> {
+                String[] arguments = process.info().arguments().orElse(new String[0]);
+                boolean hasProfile = false;
+                for (String argument : arguments) {
+                    if (argument.startsWith("--type=")) {
+                        return false;
+                    }
+                    hasProfile |= argument.equals(userDataDir);
+                }
+                return hasProfile;
+            })
+            .findFirst();
+    }
+
+    /**
+     * Largest resident set size of the session's renderer processes, or -1 when unknown.
+     */
+    static long maxRendererRssBytes(File profile) {
+        Optional<ProcessHandle> browser = knownBrowser(profile);
+        if (!browser.isPresent()) {
+            return -1;
+        }
+        return descendants(browser.get())
+            .filter(process -> {
+                for (String argument : process.info().arguments().orElse(new String[0])) {
+                    if (argument.equals("--type=renderer")) {
+                        return true;
+                    }
+                }
+                return false;
+            })
+            .mapToLong(process -> rssBytes(process.pid()))
+            .max()
+            .orElse(-1);
+    }
+
+    /**
+     * Forgets the browser process of a session that has been quit.
+     */
+    static void forget(File profile) {
+        BROWSERS.remove(profile);
+    }
+
+    // The remembered browser of a profile, looked up on first use
+    private static Optional<ProcessHandle> knownBrowser(File profile) {
+        ProcessHandle known = BROWSERS.get(profile);
+        if (known != null && known.isAlive()) {
+            return Optional.of(known);
+        }
+        Optional<ProcessHandle> found = browser(profile);
+        if (found.isPresent()) {
+            BROWSERS.put(profile, found.get());
+        } else {
+            BROWSERS.remove(profile);
+        }
+        return found;
+    }
+
+    // ProcessHandle.descendants() reads every process's parent; /proc/<pid>/task/<tid>/children only this tree
+    private static Stream<ProcessHandle> descendants(ProcessHandle process) {
+        if (!CHILDREN_FILES) {
+            return process.descendants();
+        }
+        List<Long> pids = new ArrayList<>();
+        addDescendants(process.pid(), pids);
+        return pids.stream().map(ProcessHandle::of).flatMap(Optional::stream);
+    }
+
+    private static void addDescendants(long pid, List<Long> pids) {
+        try (DirectoryStream<Path> tasks = Files.newDirectoryStream(Paths.get("/proc", Long.toString(pid), "task"))) {
+            for (Path task : tasks) {
+                String children = new String(Files.readAllBytes(task.resolve("children")), StandardCharsets.UTF_8);
+                for (String child : children.trim().split("\\s+")) {
+                    if (!child.isEmpty()) {
+                        long childPid = Long.parseLong(child);
+                        pids.add(childPid);
+                        addDescendants(childPid, pids);
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Exited meanwhile
+        }
+    }
+
+    // VmRSS from /proc/<pid>/status, in bytes
+    static long rssBytes(long pid) {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc", Long.toString(pid), "status"),
+                    StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Process has exited, or there is no /proc
+        }
+        return -1;
+    }
+
+    /**
+     * Kills the session's browser and everything it started.
+     */
+    static void destroy(File profile) {
+        browser(profile).ifPresent(browser -> {
+            logger.info("Killing browser process " + browser.pid());
+            browser.descendants().forEach(ProcessHandle::destroyForcibly);
+            browser.destroyForcibly();
+        });
+    }
+}
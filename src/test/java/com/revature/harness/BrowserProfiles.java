@@ -0,0 +1,276 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Browser profile (--user-data-dir) directories.
+ *
+ * Every session gets its own profile under the temp directory, named
+ * browser-test-<pid>-<n>, which is deleted when the session is quit. The first
+ * use in a JVM sweeps profiles left behind by crashed runs: those of processes
+ * that no longer exist and old-style browser-test-<millis> directories older
+ * than the maximum age.
+ *
+ * In warm-start mode new profiles are cloned from a template that the browser
+ * has already initialized once, so launches skip first-run profile setup. The
+ * template is copied (copy-on-write where the file system supports it) rather
+ * than hardlinked, because the browser updates some profile files in place.
+ *
+ * Configuration (system properties):
+ *   selenium.profile.maxAgeMinutes - age after which orphaned legacy profiles are deleted (default 60)
+ */
+class BrowserProfiles {
+    private static final Logger logger = TestDiagnostics.logger(BrowserProfiles.class);
+    private static final String PREFIX = "browser-test-";
+    private static final long PID = ProcessHandle.current().pid();
+    private static final long MAX_AGE_MILLIS =
+        TimeUnit.MINUTES.toMillis(Long.getLong("selenium.profile.maxAgeMinutes", 60L));
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    private static final Map<WebDriver, File> PROFILES = new HashMap<>();
+    // Templates that could not be prepared; not retried in this JVM
+    private static final Set<File> UNAVAILABLE_TEMPLATES = new HashSet<>();
+    private static boolean swept;
+
+    private BrowserProfiles() {
+    }
+
+    static File root() {
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Creates an empty profile directory, or a clone of the template in warm-start mode.
+     */
+    static File create(BrowserConfig config, boolean warm) throws IOException {
+        sweepOnce();
+        File profile = new File(root(), PREFIX + PID + "-" + SEQUENCE.incrementAndGet());
+        ResourceLedger.trackDirectory(ResourceLedger.PROFILE, profile);
+        File template = warm ? template(config) : null;
+        if (template != null) {
+            long start = System.nanoTime();
+            copy(template.toPath(), profile.toPath());
+            logger.fine(() -> "Cloned profile template in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } else {
+            Files.createDirectories(profile.toPath());
+        }
+        return profile;
+    }
+
+    static synchronized void register(WebDriver session, File profile) {
+        PROFILES.put(session, profile);
+    }
+
+    /**
+     * Deletes the profile of a session that has been quit.
+     */
+    static void release(WebDriver session) {
+        File profile;
+        synchronized (BrowserProfiles.class) {
+            profile = PROFILES.remove(session);
+        }
+        if (profile != null) {
+            BrowserProcesses.forget(profile);
+            delete(profile.toPath());
+        }
+    }
+
+    static synchronized File profileOf(WebDriver session) {
+        return PROFILES.get(session);
+    }
+
+    /**
+     * Deletes a profile that never got a session, e.g. because the launch failed.
+     */
+    static void discard(File profile) {
+        delete(profile.toPath());
+    }
+
+    private static synchronized void sweepOnce() {
+        if (!swept) {
+            swept = true;
+            sweep();
+        }
+    }
+
+    /**
+     * Deletes profile directories whose owner is gone.
+     */
+    static int sweep() {
+        File[] candidates = root().listFiles((dir, name) -> name.startsWith(PREFIX));
+        if (candidates == null) {
+            return 0;
+        }
+        int deleted = 0;
+        for (File candidate : candidates) {
+            if (candidate.isDirectory() && isOrphaned(candidate) && delete(candidate.toPath())) {
+                deleted++;
+            }
+        }
+        int count = deleted;
+        if (count > 0) {
+            logger.info(() -> "Deleted " + count + " stale browser profiles from " + root());
+        }
+        return count;
+    }
+
+    private static boolean isOrphaned(File profile) {
+        String[] parts = profile.getName().substring(PREFIX.length()).split("-");
+        try {
+            if (parts.length == 2) {
+                long owner = Long.parseLong(parts[0]);
+                return owner != PID && !ProcessHandle.of(owner).map(ProcessHandle::isAlive).orElse(false);
+            }
+            // browser-test-<millis>: no owner recorded, so go by age
+            Long.parseLong(parts[0]);
+            return System.currentTimeMillis() - profile.lastModified() > MAX_AGE_MILLIS;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // Template profile for this browser build, prepared on first use
+    private static synchronized File template(BrowserConfig config) {
+        if (config.binaryPath == null) {
+            return null;
+        }
+        String version = config.browserVersion == null ? "unknown" : config.browserVersion.replaceAll("[^\\w.]+", "_");
+        File templates = new File(DiscoveryCache.cacheDirectory(), "profiles");
+        File template = new File(templates, config.browserType + "-" + version);
+        if (template.isDirectory()) {
+            return template;
+        }
+        if (UNAVAILABLE_TEMPLATES.contains(template)) {
+            return null;
+        }
+
+        File staging = new File(templates, template.getName() + ".tmp-" + PID);
+        try {
+            delete(staging.toPath());
+            ResourceLedger.trackDirectory(ResourceLedger.PROFILE_STAGING, staging);
+            Files.createDirectories(staging.toPath());
+            // Let the browser initialize the profile once, then exit after printing the page
+            Process process = new ProcessBuilder(config.binaryPath, "--headless=new", "--no-sandbox",
+                    "--disable-gpu", "--no-first-run", "--user-data-dir=" + staging.getAbsolutePath(),
+                    "--dump-dom", "about:blank")
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            ResourceLedger.trackProcess(ResourceLedger.PROFILE_SETUP, process.toHandle());
+            boolean prepared = process.waitFor(30, TimeUnit.SECONDS) && process.exitValue() == 0;
+            if (!prepared) {
+                process.destroyForcibly();
+            }
+            ResourceLedger.untrackProcess(process.toHandle());
+            if (!prepared) {
+                logger.warning("Could not prepare a browser profile template; using empty profiles");
+                delete(staging.toPath());
+                UNAVAILABLE_TEMPLATES.add(template);
+                return null;
+            }
+            // Another JVM may have finished first; either template is fine
+            Files.move(staging.toPath(), template.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            ResourceLedger.untrackDirectory(staging);
+            logger.info("Prepared browser profile template " + template);
+        } catch (IOException e) {
+            delete(staging.toPath());
+            if (!template.isDirectory()) {
+                logger.warning("Could not prepare a browser profile template: " + e.getMessage());
+                UNAVAILABLE_TEMPLATES.add(template);
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            delete(staging.toPath());
+            return null;
+        }
+        return template;
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        if (BrowserDiscovery.IS_LINUX) {
+            try {
+                Process process = new ProcessBuilder("cp", "-a", "--reflink=auto",
+                        source.toString(), target.toString())
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+                if (process.waitFor(30, TimeUnit.SECONDS) && process.exitValue() == 0) {
+                    for (String lock : new String[] { "SingletonLock", "SingletonSocket", "SingletonCookie" }) {
+                        Files.deleteIfExists(target.resolve(lock));
+                    }
+                    return;
+                }
+                process.destroyForcibly();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while cloning the profile template", e);
+            } catch (IOException e) {
+                logger.fine(() -> "cp is unavailable, copying the profile template in Java: " + e.getMessage());
+            }
+            delete(target);
+        }
+
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                // Singleton* lock files belong to the browser that prepared the template
+                if (!file.getFileName().toString().startsWith("Singleton")) {
+                    Files.copy(file, target.resolve(source.relativize(file)), StandardCopyOption.COPY_ATTRIBUTES);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Deletes a directory tree and crosses it off the ResourceLedger.
+     */
+    static boolean delete(Path directory) {
+        if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+            ResourceLedger.untrackDirectory(directory.toFile());
+            return true;
+        }
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    Files.deleteIfExists(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            ResourceLedger.untrackDirectory(directory.toFile());
+            return true;
+        } catch (IOException e) {
+            logger.fine(() -> "Could not delete " + directory + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.revature.harness;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.bidi.HasBiDi;
+import org.openqa.selenium.bidi.log.ConsoleLogEntry;
+import org.openqa.selenium.bidi.log.JavascriptLogEntry;
+import org.openqa.selenium.bidi.module.LogInspector;
+import org.openqa.selenium.bidi.module.Script;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+
+/**
+ * Streams the browser's console.log calls into a bounded buffer.
+ *
+ * When the session was started with WebDriver BiDi enabled, console entries are
+ * pushed to the JVM as the page logs them (log.entryAdded), and
+ * awaitEntries() wakes up as soon as enough entries have arrived. Without BiDi
+ * the capture falls back to reading the BROWSER log from the driver.
+ *
+ * Uncaught exceptions (log.entryAdded of type "javascript", or "Uncaught"
+ * SEVERE entries of the browser log) are kept apart in errors(). Once the page
+ * has thrown, awaitEntries() fails at once instead of waiting for output that
+ * will not come. Over BiDi a preload script also records failed script loads
+ * in the page, which PageReadiness text waits check.
+ *
+ * One capture is kept per browser session; call clear() at the start of each
+ * test so it only sees that test's output.
+ *
+ * Configuration (system properties):
+ *   selenium.console.capacity - maximum entries kept per test (default 1000)
+ */
+public class ConsoleCapture {
+    private static final Logger logger = TestDiagnostics.logger(ConsoleCapture.class);
+    private static final int CAPACITY = Integer.getInteger("selenium.console.capacity", 1000);
+    private static final Duration FALLBACK_POLL_INTERVAL = Duration.ofMillis(50);
+    private static final Map<WebDriver, ConsoleCapture> CAPTURES = new HashMap<>();
+
+    private final WebDriver driver;
+    private final LogInspector inspector;
+    private final Deque<String> entries = new ArrayDeque<>();
+    private final List<String> errors = new ArrayList<>();
+    private long received;
+    // Error recorder installed in the page, and its id for removal
+    private Script script;
+    private String preloadScript;
+
+    private ConsoleCapture(WebDriver driver, LogInspector inspector) {
+        this.driver = driver;
+        this.inspector = inspector;
+    }
+
+    /**
+     * Returns the capture for a session, subscribing to its console on first use.
+     */
+    public static synchronized ConsoleCapture of(WebDriver driver) {
+        ConsoleCapture capture = CAPTURES.get(driver);
+        if (capture == null) {
+            capture = attach(driver);
+            CAPTURES.put(driver, capture);
+        }
+        return capture;
+    }
+
+    /**
+     * Unsubscribes and forgets the capture of a session that is being quit.
+     */
+    public static void release(WebDriver driver) {
+        ConsoleCapture capture;
+        synchronized (ConsoleCapture.class) {
+            capture = CAPTURES.remove(driver);
+        }
+        if (capture != null && capture.inspector != null) {
+            try {
+                capture.inspector.close();
+            } catch (Exception e) {
+                logger.fine(() -> "Could not close console subscription: " + e.getMessage());
+            }
+        }
+        if (capture != null && capture.script != null) {
+            try {
+                // Preload scripts are browser-wide; a shared browser would otherwise collect them
+                capture.script.removePreloadScript(capture.preloadScript);
+                capture.script.close();
+            } catch (Exception e) {
+                logger.fine(() -> "Could not remove the page error recorder: " + e.getMessage());
+            }
+        }
+    }
+
+    private static ConsoleCapture attach(WebDriver driver) {
+        if (driver instanceof HasBiDi && ((HasBiDi) driver).maybeGetBiDi().isPresent()) {
+            try {
+                // A multiplexed view only sees its own tab's console
+                String context = ContextMultiplexer.contextOf(driver);
+                LogInspector inspector = context == null ? new LogInspector(driver) : new LogInspector(context, driver);
+                ConsoleCapture capture = new ConsoleCapture(driver, inspector);
+                inspector.onConsoleEntry(capture::add);
+                inspector.onJavaScriptException(capture::addError);
+                capture.installErrorRecorder();
+                logger.fine("Streaming browser console over BiDi");
+                return capture;
+            } catch (Exception e) {
+                logger.warning("BiDi console subscription failed, reading the browser log instead: " + e.getMessage());
+            }
+        } else {
+            logger.fine("BiDi not available, reading the browser log instead");
+        }
+        return new ConsoleCapture(driver, null);
+    }
+
+    private void installErrorRecorder() {
+        try {
+            Script recorder = new Script(driver);
+            preloadScript = recorder.addPreloadScript(PageReadiness.ERROR_RECORDER_SCRIPT);
+            script = recorder;
+        } catch (Exception e) {
+            logger.fine(() -> "Could not install the page error recorder: " + e.getMessage());
+        }
+    }
+
+    public boolean isStreaming() {
+        return inspector != null;
+    }
+
+    /**
+     * Drops buffered entries and resets the received count.
+     */
+    public void clear() {
+        if (!isStreaming()) {
+            // Reading the browser log also empties it
+            readBrowserLog();
+        }
+        synchronized (this) {
+            entries.clear();
+            errors.clear();
+            received = 0;
+        }
+    }
+
+    /**
+     * Returns the entries received since the last clear(), oldest first. At most
+     * selenium.console.capacity entries are kept.
+     */
+    public List<String> entries() {
+        if (!isStreaming()) {
+            pullBrowserLog();
+        }
+        synchronized (this) {
+            return new ArrayList<>(entries);
+        }
+    }
+
+    /**
+     * Returns the uncaught errors the page has thrown since the last clear().
+     */
+    public List<String> errors() {
+        if (!isStreaming()) {
+            pullBrowserLog();
+        }
+        synchronized (this) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    /**
+     * Blocks until at least count entries have been received since the last
+     * clear() and returns the buffered entries.
+     *
+     * @throws AssertionError as soon as the page throws while entries are missing
+     */
+    public List<String> awaitEntries(int count, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            if (!isStreaming()) {
+                pullBrowserLog();
+            }
+            synchronized (this) {
+                if (received >= count) {
+                    return new ArrayList<>(entries);
+                }
+                if (!errors.isEmpty()) {
+                    throw PageReadiness.pageFailed(count + " console entries (received " + received + ")", errors);
+                }
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    throw new TimeoutException("Expected " + count + " console entries but received "
+                        + received + ": " + entries);
+                }
+                long waitNanos = isStreaming()
+                    ? remainingNanos
+                    : Math.min(remainingNanos, FALLBACK_POLL_INTERVAL.toNanos());
+                wait(Math.max(1, waitNanos / 1_000_000));
+            }
+        }
+    }
+
+    private synchronized void add(ConsoleLogEntry entry) {
+        append(entry.getText());
+    }
+
+    private synchronized void addError(JavascriptLogEntry entry) {
+        if (errors.size() < CAPACITY) {
+            errors.add(entry.getText());
+        }
+        notifyAll();
+    }
+
+    private synchronized void append(String text) {
+        if (entries.size() >= CAPACITY) {
+            entries.removeFirst();
+        }
+        entries.addLast(text);
+        received++;
+        notifyAll();
+    }
+
+    private void pullBrowserLog() {
+        List<LogEntry> logEntries = readBrowserLog();
+        synchronized (this) {
+            for (LogEntry entry : logEntries) {
+                if (Level.SEVERE.equals(entry.getLevel()) && entry.getMessage().contains("Uncaught")) {
+                    if (errors.size() < CAPACITY) {
+                        errors.add(entry.getMessage());
+                    }
+                } else {
+                    append(entry.getMessage());
+                }
+            }
+        }
+    }
+
+    private List<LogEntry> readBrowserLog() {
+        List<LogEntry> messages = new ArrayList<>();
+        try {
+            messages.addAll(driver.manage().logs().get(LogType.BROWSER).getAll());
+        } catch (Exception e) {
+            logger.fine(() -> "Could not read browser console log: " + e.getMessage());
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,382 @@
+package com.revature.harness;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.bidi.module.Browser;
+import org.openqa.selenium.bidi.module.Script;
+import org.openqa.selenium.bidi.browsingcontext.BrowsingContext;
+import org.openqa.selenium.bidi.browsingcontext.CreateContextParameters;
+import org.openqa.selenium.bidi.script.EvaluateResult;
+import org.openqa.selenium.bidi.script.EvaluateResultExceptionValue;
+import org.openqa.selenium.bidi.script.EvaluateResultSuccess;
+import org.openqa.selenium.bidi.script.LocalValue;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.support.decorators.Decorated;
+import org.openqa.selenium.support.decorators.WebDriverDecorator;
+
+/**
+ * Runs several isolated tests in one browser.
+ *
+ * open() gives each caller its own BiDi user context (separate cookies,
+ * storage and cache, like an incognito window) with one tab in it, and
+ * returns a WebDriver view bound to that tab. Up to the configured number of
+ * contexts share a browser, so the browser's startup and base memory are paid
+ * once per group of tests instead of once per test.
+ *
+ * A WebDriver session has a single current window, so views of the same
+ * browser take turns: every call through a view holds the browser's lock and
+ * first switches to the view's tab if another view used the browser last.
+ * Views must therefore not switch windows themselves. The exception is
+ * executeAsyncScript with JSON-like arguments, which waits for events and can
+ * take up to the script timeout: it runs over BiDi in the view's tab, without
+ * the lock, so views wait for their pages at the same time. quit() on a view
+ * closes its context only.
+ *
+ * A new browser starts outside the multiplexer's lock. Callers that need a
+ * context meanwhile wait for the browser being started if it has room for
+ * them, and start another one otherwise.
+ *
+ * The launch profile's blocked URLs are applied to every tab a view gets, not
+ * just to the tab the browser started with.
+ *
+ * Configuration (system properties):
+ *   selenium.pool.mode                 - "contexts" to use this instead of one browser per session
+ *   selenium.pool.contextsPerBrowser   - contexts sharing one browser (default 8)
+ */
+public class ContextMultiplexer {
+    private static final Logger logger = TestDiagnostics.logger(ContextMultiplexer.class);
+    private static final Json JSON = new Json();
+    private static final Map<WebDriver, View> VIEWS = new HashMap<>();
+    // BiDi commands time out after 30 seconds; longer scripts take the locked path
+    private static final Duration BIDI_SCRIPT_LIMIT = Duration.ofSeconds(25);
+    // Runs an executeAsyncScript body in a page and resolves with its result as JSON
+    private static final String ASYNC_SCRIPT_RUNNER =
+        "function (script, argumentsJson, timeoutMillis) {" +
+        "  var args = JSON.parse(argumentsJson);" +
+        "  return new Promise(function (resolve) {" +
+        "    var timer = setTimeout(function () { resolve(JSON.stringify({ timedOut: true })); }, timeoutMillis);" +
+        "    args.push(function (value) {" +
+        "      clearTimeout(timer);" +
+        "      resolve(JSON.stringify({ value: value === undefined ? null : value }));" +
+        "    });" +
+        "    new Function(script).apply(window, args);" +
+        "  });" +
+        "}";
+
+    private final int contextsPerBrowser;
+    private final List<SharedBrowser> browsers = new ArrayList<>();
+
+    ContextMultiplexer(int contextsPerBrowser) {
+        this.contextsPerBrowser = Math.max(1, contextsPerBrowser);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "context-multiplexer-shutdown"));
+    }
+
+    public static boolean isEnabled() {
+        return "contexts".equalsIgnoreCase(System.getProperty("selenium.pool.mode", "sessions"));
+    }
+
+    public static ContextMultiplexer fromSystemProperties() {
+        return new ContextMultiplexer(Integer.getInteger("selenium.pool.contextsPerBrowser", 8));
+    }
+
+    public int contextsPerBrowser() {
+        return contextsPerBrowser;
+    }
+
+    /**
+     * The BiDi browsing context (tab) id of a view, or null for a plain session.
+     */
+    public static synchronized String contextOf(WebDriver driver) {
+        View view = VIEWS.get(driver);
+        return view == null ? null : view.tab;
+    }
+
+    /**
+     * The browser session a view runs in, or the driver itself for a plain session.
+     */
+    public static synchronized WebDriver browserOf(WebDriver driver) {
+        View view = VIEWS.get(driver);
+        return view == null ? driver : view.browser.driver;
+    }
+
+    /**
+     * Opens a new user context and tab, in a browser that has room for one or
+     * in a new browser from the factory.
+     */
+    public WebDriver open(Supplier<WebDriver> factory) {
+        SharedBrowser browser = reserve();
+        awaitStarted(browser, factory);
+        try {
+            View view;
+            synchronized (browser) {
+                String userContext = new Browser(browser.driver).createUserContext();
+                BrowsingContext tab = new BrowsingContext(browser.driver,
+                    new CreateContextParameters(WindowType.TAB).userContext(userContext));
+                view = new View(browser, userContext, tab.getId());
+                blockUrls(browser, view.tab);
+            }
+            WebDriver decorated = new ViewDecorator(view).decorate(browser.driver);
+            view.proxy = decorated;
+            synchronized (ContextMultiplexer.class) {
+                VIEWS.put(decorated, view);
+            }
+            logger.fine(() -> "Opened browser context " + view.userContext + " in tab " + view.tab);
+            return decorated;
+        } catch (RuntimeException e) {
+            // A browser that cannot open a context is not usable for anyone
+            logger.warning("Could not open a browser context, discarding the browser: " + e.getMessage());
+            retire(browser);
+            throw e;
+        }
+    }
+
+    // The browser's blocked URLs were set on its first tab only. CDP commands go
+    // to the current tab, so each new tab is given the list while it is current.
+    // Caller holds the browser's lock.
+    private static void blockUrls(SharedBrowser browser, String tab) {
+        LaunchProfile launchProfile = BrowserFactory.launchProfileOf(browser.driver);
+        if (launchProfile == null || launchProfile.blockedUrls().isEmpty()) {
+            return;
+        }
+        browser.driver.switchTo().window(tab);
+        browser.currentTab = tab;
+        BrowserFactory.blockUrls(browser.driver, launchProfile.blockedUrls());
+    }
+
+    /**
+     * Closes a view's tab and user context. The browser stays up for later views.
+     */
+    public void close(WebDriver driver) {
+        View view;
+        synchronized (ContextMultiplexer.class) {
+            view = VIEWS.remove(driver);
+        }
+        if (view == null) {
+            return;
+        }
+        ConsoleCapture.release(driver);
+        SharedBrowser browser = view.browser;
+        try {
+            synchronized (browser) {
+                // Removing the user context also closes its tab
+                new Browser(browser.driver).removeUserContext(view.userContext);
+                if (view.tab.equals(browser.currentTab)) {
+                    browser.currentTab = null;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warning("Could not close browser context, discarding the browser: " + e.getMessage());
+            retire(browser);
+            return;
+        }
+        synchronized (this) {
+            browser.contexts--;
+        }
+    }
+
+    /**
+     * Quits every browser. Open views stop working.
+     */
+    public void shutdown() {
+        List<SharedBrowser> all;
+        synchronized (this) {
+            all = new ArrayList<>(browsers);
+            browsers.clear();
+        }
+        for (SharedBrowser browser : all) {
+            quit(browser);
+        }
+    }
+
+    // A browser with room for one more context, possibly one that has yet to start
+    synchronized SharedBrowser reserve() {
+        for (SharedBrowser browser : browsers) {
+            if (browser.contexts < contextsPerBrowser) {
+                browser.contexts++;
+                return browser;
+            }
+        }
+        SharedBrowser browser = new SharedBrowser();
+        browser.contexts++;
+        browsers.add(browser);
+        return browser;
+    }
+
+    // Starts the browser if nobody has yet, which can take minutes under
+    // admission control, and otherwise waits for whoever does
+    private void awaitStarted(SharedBrowser browser, Supplier<WebDriver> factory) {
+        if (browser.starting.compareAndSet(false, true)) {
+            WebDriver driver;
+            try {
+                driver = factory.get();
+            } catch (RuntimeException | Error e) {
+                synchronized (this) {
+                    browsers.remove(browser);
+                }
+                browser.started.completeExceptionally(e);
+                throw e;
+            }
+            browser.driver = driver;
+            browser.started.complete(driver);
+            boolean shutDown;
+            synchronized (this) {
+                shutDown = !browsers.contains(browser);
+            }
+            if (shutDown) {
+                quit(browser);
+                throw new IllegalStateException("The multiplexer shut down while the browser started");
+            }
+            logger.info("Started a shared browser for up to " + contextsPerBrowser + " contexts");
+            return;
+        }
+        try {
+            browser.started.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void retire(SharedBrowser browser) {
+        synchronized (this) {
+            if (!browsers.remove(browser)) {
+                return;
+            }
+        }
+        quit(browser);
+    }
+
+    private static void quit(SharedBrowser browser) {
+        if (browser.driver == null) {
+            // Still starting; whoever starts it quits it
+            return;
+        }
+        ConsoleCapture.release(browser.driver);
+        try {
+            browser.driver.quit();
+        } catch (Exception e) {
+            logger.warning("Error quitting shared browser: " + e.getMessage());
+        }
+        BrowserProfiles.release(browser.driver);
+    }
+
+    static final class SharedBrowser {
+        final AtomicBoolean starting = new AtomicBoolean();
+        final CompletableFuture<WebDriver> started = new CompletableFuture<>();
+        // Set once started
+        volatile WebDriver driver;
+        // Guarded by this; the tab the session's commands currently go to
+        String currentTab;
+        // Guarded by the multiplexer
+        int contexts;
+    }
+
+    private static final class View {
+        final SharedBrowser browser;
+        final String userContext;
+        final String tab;
+        // The decorated driver handed out for this view
+        WebDriver proxy;
+
+        View(SharedBrowser browser, String userContext, String tab) {
+            this.browser = browser;
+            this.userContext = userContext;
+            this.tab = tab;
+        }
+    }
+
+    /**
+     * Routes every call on the view, its elements, waits and options to the view's tab.
+     */
+    private final class ViewDecorator extends WebDriverDecorator<WebDriver> {
+        private final View view;
+
+        ViewDecorator(View view) {
+            this.view = view;
+        }
+
+        @Override
+        public Object call(Decorated<?> target, Method method, Object[] args) throws Throwable {
+            if (target.getOriginal() == view.browser.driver && "quit".equals(method.getName())) {
+                close(view.proxy);
+                return null;
+            }
+            SharedBrowser browser = view.browser;
+            if (target.getOriginal() == browser.driver && "executeAsyncScript".equals(method.getName())
+                    && args.length == 2 && isJsonLike(args[1])) {
+                Duration timeout;
+                synchronized (browser) {
+                    timeout = browser.driver.manage().timeouts().getScriptTimeout();
+                }
+                if (timeout.compareTo(BIDI_SCRIPT_LIMIT) <= 0) {
+                    return executeAsyncScript(view, (String) args[0], (Object[]) args[1], timeout);
+                }
+            }
+            synchronized (browser) {
+                if (!view.tab.equals(browser.currentTab)) {
+                    browser.driver.switchTo().window(view.tab);
+                    browser.currentTab = view.tab;
+                }
+                return super.call(target, method, args);
+            }
+        }
+    }
+
+    /**
+     * executeAsyncScript in the view's tab over BiDi, which needs neither the
+     * current window nor the browser's lock.
+     */
+    private static Object executeAsyncScript(View view, String script, Object[] args, Duration timeout) {
+        List<LocalValue> runnerArguments = Arrays.asList(
+            LocalValue.stringValue(script),
+            LocalValue.stringValue(JSON.toJson(Arrays.asList(args))),
+            LocalValue.numberValue(timeout.toMillis()));
+        EvaluateResult result = new Script(view.browser.driver).callFunctionInBrowsingContext(view.tab,
+            ASYNC_SCRIPT_RUNNER, true, Optional.of(runnerArguments), Optional.empty(), Optional.empty());
+        if (result instanceof EvaluateResultExceptionValue) {
+            throw new JavascriptException(((EvaluateResultExceptionValue) result).getExceptionDetails().getText());
+        }
+        Object json = ((EvaluateResultSuccess) result).getResult().getValue().orElse(null);
+        Map<String, Object> outcome = JSON.toType(String.valueOf(json), Json.MAP_TYPE);
+        if (Boolean.TRUE.equals(outcome.get("timedOut"))) {
+            throw new ScriptTimeoutException("Script did not finish within " + timeout.toMillis() + " ms");
+        }
+        return outcome.get("value");
+    }
+
+    // Values that survive JSON unchanged; an element reference, for one, does not
+    static boolean isJsonLike(Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return true;
+        }
+        if (value instanceof Object[]) {
+            return isJsonLike(Arrays.asList((Object[]) value));
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).stream().allMatch(ContextMultiplexer::isJsonLike);
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).entrySet().stream()
+                .allMatch(entry -> entry.getKey() instanceof String && isJsonLike(entry.getValue()));
+        }
+        return false;
+    }
+}
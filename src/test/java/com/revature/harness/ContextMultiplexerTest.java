@@ -0,0 +1,134 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+
+public class ContextMultiplexerTest {
+    @Test
+    public void fillsABrowserBeforeStartingAnother() {
+        ContextMultiplexer multiplexer = new ContextMultiplexer(2);
+
+        ContextMultiplexer.SharedBrowser first = multiplexer.reserve();
+        assertSame(first, multiplexer.reserve());
+        ContextMultiplexer.SharedBrowser second = multiplexer.reserve();
+
+        assertNotSame(first, second);
+        assertEquals(2, first.contexts);
+        assertEquals(1, second.contexts);
+    }
+
+    @Test
+    public void browserThatFailsToStartIsDropped() {
+        ContextMultiplexer multiplexer = new ContextMultiplexer(2);
+        AtomicInteger starts = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(IllegalStateException.class, () -> multiplexer.open(() -> {
+                starts.incrementAndGet();
+                throw new IllegalStateException("no browser");
+            }));
+        }
+
+        // Had the failed browser been kept, the second open would have joined its failure
+        assertEquals(2, starts.get());
+        assertEquals(1, multiplexer.reserve().contexts);
+    }
+
+    @Test
+    public void contextsOfABrowserBeingStartedWaitForIt() throws Exception {
+        ContextMultiplexer multiplexer = new ContextMultiplexer(2);
+        AtomicInteger starts = new AtomicInteger();
+        CountDownLatch starting = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            Future<WebDriver> first = threads.submit(() -> multiplexer.open(() -> {
+                starts.incrementAndGet();
+                starting.countDown();
+                await(fail);
+                throw new IllegalStateException("no browser");
+            }));
+            assertTrue(starting.await(5, TimeUnit.SECONDS));
+            Future<WebDriver> second = threads.submit(() -> multiplexer.open(() -> {
+                starts.incrementAndGet();
+                throw new AssertionError("The browser being started has room for this context");
+            }));
+            Thread.sleep(100);
+            assertFalse(second.isDone());
+
+            fail.countDown();
+
+            for (Future<WebDriver> open : Arrays.asList(first, second)) {
+                ExecutionException failure = assertThrows(ExecutionException.class,
+                    () -> open.get(5, TimeUnit.SECONDS));
+                assertEquals("no browser", failure.getCause().getMessage());
+            }
+            assertEquals(1, starts.get());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void plainSessionsAreNotViews() {
+        WebDriver driver = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { WebDriver.class }, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        throw new AssertionError("Unexpected call to " + method.getName());
+                }
+            });
+
+        assertNull(ContextMultiplexer.contextOf(driver));
+        // Closing a session that is not a view leaves it alone
+        new ContextMultiplexer(2).close(driver);
+    }
+
+    @Test
+    public void onlyJsonValuesTakeTheBiDiPath() {
+        Map<String, Object> options = new HashMap<>();
+        options.put("ids", Arrays.asList("a", "b"));
+        options.put("timeout", 500L);
+        options.put("strict", true);
+        options.put("missing", null);
+
+        assertTrue(ContextMultiplexer.isJsonLike(new Object[] { "text", 1, 2.5, false, null }));
+        assertTrue(ContextMultiplexer.isJsonLike(new Object[] { options, Collections.emptyList() }));
+        assertFalse(ContextMultiplexer.isJsonLike(new Object[] { new Object() }));
+        assertFalse(ContextMultiplexer.isJsonLike(Collections.singletonMap(1, "not a string key")));
+        assertFalse(ContextMultiplexer.isJsonLike(
+            Collections.singletonList(Collections.singletonList(new Object()))));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * On-disk cache for browser and driver discovery results.
+ *
+ * Entries are keyed by a fingerprint of the OS, the architecture and the
+ * modification times of every candidate driver and browser path, so installing,
+ * upgrading or removing a binary invalidates the cache automatically.
+ *
+ * Configuration (system properties):
+ *   selenium.cache.dir       - cache directory (default ~/.cache/selenium-harness)
+ *   selenium.discovery.cache - set to "false" to always rediscover
+ */
+class DiscoveryCache {
+    private static final Logger logger = TestDiagnostics.logger(DiscoveryCache.class);
+    private static final String FINGERPRINT_KEY = "fingerprint";
+
+    private final File file;
+    private final boolean enabled;
+
+    DiscoveryCache(File file, boolean enabled) {
+        this.file = file;
+        this.enabled = enabled;
+    }
+
+    static DiscoveryCache fromSystemProperties() {
+        File directory = cacheDirectory();
+        boolean enabled = Boolean.parseBoolean(System.getProperty("selenium.discovery.cache", "true"));
+        return new DiscoveryCache(new File(directory, "discovery.properties"), enabled);
+    }
+
+    static File cacheDirectory() {
+        String defaultDirectory = System.getProperty("user.home") + File.separator + ".cache"
+            + File.separator + "selenium-harness";
+        return new File(System.getProperty("selenium.cache.dir", defaultDirectory));
+    }
+
+    /**
+     * Builds the cache key for the current machine from the candidate paths.
+     * Paths that do not exist contribute a fixed marker, so a binary appearing
+     * later also changes the fingerprint.
+     */
+    static String fingerprint(String osName, String osArch, List<String> candidatePaths) {
+        StringBuilder key = new StringBuilder(osName).append('|').append(osArch);
+        for (String path : candidatePaths) {
+            File candidate = new File(path);
+            key.append('|').append(path).append('=')
+                .append(candidate.exists() ? candidate.lastModified() : -1L);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest(key.toString().getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(key.toString().hashCode());
+        }
+    }
+
+    /**
+     * Returns the cached values when they were stored for the same fingerprint,
+     * otherwise null.
+     */
+    Properties load(String fingerprint) {
+        if (!enabled || !file.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (Exception e) {
+            logger.warning("Ignoring unreadable discovery cache: " + e.getMessage());
+            return null;
+        }
+        return fingerprint.equals(properties.getProperty(FINGERPRINT_KEY)) ? properties : null;
+    }
+
+    void store(String fingerprint, Map<String, String> values) {
+        if (!enabled) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty(FINGERPRINT_KEY, fingerprint);
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (entry.getValue() != null) {
+                properties.setProperty(entry.getKey(), entry.getValue());
+            }
+        }
+        try {
+            File directory = file.getParentFile();
+            if (directory != null) {
+                directory.mkdirs();
+            }
+            // Write to a temporary file first so concurrent JVMs never read a partial file
+            File temp = File.createTempFile("discovery", ".tmp", directory);
+            try (OutputStream out = new FileOutputStream(temp)) {
+                properties.store(out, "Browser and driver discovery cache");
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            logger.warning("Could not write discovery cache: " + e.getMessage());
+        }
+    }
+}
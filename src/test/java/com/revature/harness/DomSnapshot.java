@@ -0,0 +1,97 @@
+package com.revature.harness;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Text of a set of elements read from the page in a single script call.
+ *
+ * Reading each element with findElement() and getText() costs at least two
+ * WebDriver round trips per element; a snapshot reads all of them in one
+ * executeScript call and the assertions then run against the local copy.
+ */
+public final class DomSnapshot {
+    // Returns { id: innerText } with null for ids that are not in the page
+    private static final String CAPTURE_SCRIPT =
+        "var ids = arguments[0];" +
+        "var result = {};" +
+        "for (var i = 0; i < ids.length; i++) {" +
+        "  var element = document.getElementById(ids[i]);" +
+        "  result[ids[i]] = element ? element.innerText : null;" +
+        "}" +
+        "return result;";
+
+    // Returns { id: innerText } for every element with an id
+    private static final String CAPTURE_ALL_SCRIPT =
+        "var result = {};" +
+        "var elements = document.querySelectorAll('[id]');" +
+        "for (var i = 0; i < elements.length; i++) {" +
+        "  result[elements[i].id] = elements[i].innerText;" +
+        "}" +
+        "return result;";
+
+    private final Map<String, String> texts;
+
+    private DomSnapshot(Map<String, String> texts) {
+        this.texts = Collections.unmodifiableMap(new LinkedHashMap<>(texts));
+    }
+
+    /**
+     * Reads the current text of every id in one round trip.
+     */
+    @SuppressWarnings("unchecked")
+    public static DomSnapshot capture(WebDriver driver, List<String> ids) {
+        Object result = ((JavascriptExecutor) driver).executeScript(CAPTURE_SCRIPT, ids);
+        return new DomSnapshot((Map<String, String>) result);
+    }
+
+    /**
+     * Reads the text of every element that has an id in one round trip.
+     */
+    @SuppressWarnings("unchecked")
+    public static DomSnapshot captureAll(WebDriver driver) {
+        Object result = ((JavascriptExecutor) driver).executeScript(CAPTURE_ALL_SCRIPT);
+        return new DomSnapshot((Map<String, String>) result);
+    }
+
+    /**
+     * Waits until every id exists and has non-empty text, then returns the
+     * snapshot from the same script call.
+     */
+    public static DomSnapshot await(WebDriver driver, List<String> ids) {
+        return new DomSnapshot(PageReadiness.awaitText(driver, ids));
+    }
+
+    /**
+     * Wraps text that was read some other way, e.g. by the script tier.
+     */
+    public static DomSnapshot of(Map<String, String> texts) {
+        return new DomSnapshot(texts);
+    }
+
+    public boolean has(String id) {
+        return texts.get(id) != null;
+    }
+
+    /**
+     * Returns the text of an element in the snapshot.
+     *
+     * @throws NoSuchElementException if the element was not in the page
+     */
+    public String text(String id) {
+        String text = texts.get(id);
+        if (text == null) {
+            throw new NoSuchElementException("No element with id '" + id + "' in the page snapshot");
+        }
+        return text;
+    }
+
+    public Map<String, String> texts() {
+        return texts;
+    }
+}
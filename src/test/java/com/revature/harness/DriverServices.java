@@ -0,0 +1,67 @@
+package com.revature.harness;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import org.openqa.selenium.remote.service.DriverService;
+
+/**
+ * One long-lived ChromeDriver/EdgeDriver process per driver executable.
+ *
+ * Sessions are created against the running service instead of each starting
+ * its own driver process. A service that has died is replaced on next use;
+ * all services are stopped when the JVM exits.
+ */
+class DriverServices {
+    private static final Logger logger = TestDiagnostics.logger(DriverServices.class);
+    private static final Map<String, DriverService> SERVICES = new HashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DriverServices::stopAll, "driver-services-shutdown"));
+    }
+
+    private DriverServices() {
+    }
+
+    /**
+     * Returns the running service for a driver executable, starting one with
+     * the factory if there is none.
+     */
+    static synchronized DriverService shared(String driverPath, Supplier<? extends DriverService> factory) {
+        DriverService service = SERVICES.get(driverPath);
+        if (service != null && service.isRunning()) {
+            return service;
+        }
+        if (service != null) {
+            logger.warning("Driver service for " + driverPath + " stopped; starting a new one");
+        }
+        service = factory.get();
+        try {
+            long start = System.nanoTime();
+            service.start();
+            DriverService started = service;
+            logger.fine(() -> "Started shared driver service at " + started.getUrl() + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start driver " + driverPath, e);
+        }
+        // Once per driver process, rather than once per session on it
+        ResourceLedger.trackDriverProcesses(driverPath);
+        SERVICES.put(driverPath, service);
+        return service;
+    }
+
+    static synchronized void stopAll() {
+        for (DriverService service : SERVICES.values()) {
+            try {
+                service.stop();
+            } catch (Exception e) {
+                logger.fine(() -> "Error stopping driver service: " + e.getMessage());
+            }
+        }
+        SERVICES.clear();
+    }
+}
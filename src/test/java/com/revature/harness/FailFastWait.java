@@ -0,0 +1,55 @@
+package com.revature.harness;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+/**
+ * WebDriverWait that stops waiting once the page has thrown.
+ *
+ * Each time the condition is not met yet, the session's ConsoleCapture is
+ * checked for uncaught errors; if there are any, until() fails with them
+ * instead of polling until the timeout. A condition that already holds is
+ * returned as usual, so checks that do not depend on the failing code pass.
+ */
+class FailFastWait extends WebDriverWait {
+    private final ConsoleCapture console;
+
+    FailFastWait(WebDriver driver, Duration timeout, ConsoleCapture console) {
+        super(driver, timeout);
+        this.console = console;
+    }
+
+    @Override
+    public <V> V until(Function<? super WebDriver, V> isTrue) {
+        long start = System.nanoTime();
+        V result = super.until(driver -> {
+            V value;
+            try {
+                value = isTrue.apply(driver);
+            } catch (RuntimeException e) {
+                failIfPageFailed(e);
+                throw e;
+            }
+            if (value == null || Boolean.FALSE.equals(value)) {
+                failIfPageFailed(null);
+            }
+            return value;
+        });
+        AdaptiveTimeouts.shared().record(AdaptiveTimeouts.WAIT, start);
+        return result;
+    }
+
+    private void failIfPageFailed(RuntimeException cause) {
+        List<String> errors = console.errors();
+        if (!errors.isEmpty()) {
+            AssertionError failure = PageReadiness.pageFailed("the wait condition", errors);
+            if (cause != null) {
+                failure.initCause(cause);
+            }
+            throw failure;
+        }
+    }
+}
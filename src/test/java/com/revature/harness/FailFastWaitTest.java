@@ -0,0 +1,104 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.logging.LogEntries;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.Logs;
+
+public class FailFastWaitTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    // What the fake browser log returns
+    private final List<LogEntry> browserLog = new CopyOnWriteArrayList<>();
+    private final WebDriver driver = fakeDriver();
+
+    @AfterEach
+    public void releaseCapture() {
+        ConsoleCapture.release(driver);
+    }
+
+    @Test
+    public void failsAtOnceWhenThePageHasThrown() {
+        browserLog.add(uncaught("ReferenceError: total is not defined"));
+        long start = System.nanoTime();
+
+        AssertionError failure = assertThrows(AssertionError.class, () -> wait(TIMEOUT).until(d -> false));
+
+        assertTrue(failure.getMessage().contains("total is not defined"), failure.getMessage());
+        assertTrue(System.nanoTime() - start < TIMEOUT.toNanos() / 2);
+    }
+
+    @Test
+    public void conditionThatHoldsPassesDespitePageErrors() {
+        browserLog.add(uncaught("TypeError: x is undefined"));
+
+        assertEquals("ready", wait(TIMEOUT).until(d -> "ready"));
+    }
+
+    @Test
+    public void failedLookupIsKeptAsTheCause() {
+        browserLog.add(uncaught("TypeError: x is undefined"));
+        NoSuchElementException missing = new NoSuchElementException("#result");
+
+        AssertionError failure = assertThrows(AssertionError.class, () -> wait(TIMEOUT).until(d -> {
+            throw missing;
+        }));
+
+        assertSame(missing, failure.getCause());
+    }
+
+    @Test
+    public void waitsAsUsualWhileThePageIsHealthy() {
+        browserLog.add(new LogEntry(Level.INFO, System.currentTimeMillis(), "console.log output"));
+        AtomicInteger polls = new AtomicInteger();
+
+        assertEquals(Boolean.TRUE, wait(TIMEOUT).until(d -> polls.incrementAndGet() >= 2));
+        assertThrows(TimeoutException.class, () -> wait(Duration.ofMillis(300)).until(d -> false));
+    }
+
+    private FailFastWait wait(Duration timeout) {
+        return new FailFastWait(driver, timeout, ConsoleCapture.of(driver));
+    }
+
+    private static LogEntry uncaught(String message) {
+        return new LogEntry(Level.SEVERE, System.currentTimeMillis(),
+            "http://lab.localhost/0/app.js 3:7 Uncaught " + message);
+    }
+
+    // A session without BiDi, so ConsoleCapture reads the browser log
+    private WebDriver fakeDriver() {
+        Logs logs = proxy(Logs.class, name -> "get".equals(name) ? new LogEntries(browserLog) : null);
+        WebDriver.Options options = proxy(WebDriver.Options.class, name -> "logs".equals(name) ? logs : null);
+        return proxy(WebDriver.class, name -> "manage".equals(name) ? options : null);
+    }
+
+    private static <T> T proxy(Class<T> type, Function<String, Object> answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return answers.apply(method.getName());
+                }
+            }));
+    }
+}
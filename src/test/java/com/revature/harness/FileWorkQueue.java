@@ -0,0 +1,218 @@
+package com.revature.harness;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * WorkQueue kept in a directory, e.g. on a file system shared by the grading
+ * nodes or a local directory when trying things out on one machine.
+ *
+ * Each shard is one file, and its state is the subdirectory it is in:
+ *   pending/<shard>                       - payload of a shard nobody holds
+ *   leased/<shard>@<worker>@<expiry ms>   - payload of a leased shard
+ *   done/<shard>                          - result of a completed shard
+ *   sealed                                - present once every shard is added
+ *
+ * Claiming, extending and requeueing a lease are all atomic renames of the
+ * shard's current file, so when two nodes race for the same file exactly one
+ * of them wins. Lease expiry times come from the clock of the worker that
+ * extends them and are compared with the clock of the node that requeues
+ * them, so node clocks must roughly agree compared with the lease duration.
+ *
+ * Configuration (system properties):
+ *   selenium.queue.lease - seconds a lease lasts without a heartbeat (default 120)
+ */
+public class FileWorkQueue implements WorkQueue {
+    private static final Logger logger = TestDiagnostics.logger(FileWorkQueue.class);
+    private static final String SEPARATOR = "@";
+
+    private final Path pending;
+    private final Path leased;
+    private final Path done;
+    private final Path sealed;
+    private final Duration leaseDuration;
+
+    public FileWorkQueue(Path directory, Duration leaseDuration) throws IOException {
+        this.pending = Files.createDirectories(directory.resolve("pending"));
+        this.leased = Files.createDirectories(directory.resolve("leased"));
+        this.done = Files.createDirectories(directory.resolve("done"));
+        this.sealed = directory.resolve("sealed");
+        this.leaseDuration = leaseDuration;
+    }
+
+    public FileWorkQueue(Path directory) throws IOException {
+        this(directory, Duration.ofSeconds(Long.getLong("selenium.queue.lease", 120)));
+    }
+
+    public Duration leaseDuration() {
+        return leaseDuration;
+    }
+
+    @Override
+    public void add(String shardId, String payload) throws IOException {
+        checkName(shardId);
+        if (Files.exists(pending.resolve(shardId)) || Files.exists(done.resolve(shardId))
+                || list(leased).stream().anyMatch(handle -> handle.startsWith(shardId + SEPARATOR))) {
+            return;
+        }
+        write(pending.resolve(shardId), payload);
+    }
+
+    @Override
+    public void seal() throws IOException {
+        write(sealed, "");
+    }
+
+    @Override
+    public boolean isSealed() {
+        return Files.exists(sealed);
+    }
+
+    @Override
+    public Lease claim(String workerId) throws IOException {
+        checkName(workerId);
+        for (String shardId : list(pending)) {
+            String handle = leaseName(shardId, workerId);
+            try {
+                move(pending.resolve(shardId), leased.resolve(handle));
+            } catch (NoSuchFileException e) {
+                // Claimed by another worker first
+                continue;
+            }
+            String payload = new String(Files.readAllBytes(leased.resolve(handle)), StandardCharsets.UTF_8);
+            logger.fine(() -> workerId + " claimed " + shardId);
+            return new Lease(shardId, workerId, payload, handle);
+        }
+        return null;
+    }
+
+    @Override
+    public boolean heartbeat(Lease lease) throws IOException {
+        String handle = leaseName(lease.shardId(), lease.workerId());
+        try {
+            move(leased.resolve(lease.handle), leased.resolve(handle));
+        } catch (NoSuchFileException e) {
+            logger.warning(lease.workerId() + " lost its lease on " + lease.shardId());
+            return false;
+        }
+        lease.handle = handle;
+        return true;
+    }
+
+    @Override
+    public void complete(Lease lease, String result) throws IOException {
+        write(done.resolve(lease.shardId()), result);
+        Files.deleteIfExists(leased.resolve(lease.handle));
+        // The lease may have expired meanwhile; nobody needs to grade the shard again
+        Files.deleteIfExists(pending.resolve(lease.shardId()));
+        logger.fine(() -> lease.workerId() + " completed " + lease.shardId());
+    }
+
+    @Override
+    public int requeueExpired() throws IOException {
+        long now = System.currentTimeMillis();
+        int requeued = 0;
+        for (String handle : list(leased)) {
+            String[] parts = handle.split(SEPARATOR);
+            long expiry;
+            try {
+                expiry = Long.parseLong(parts[parts.length - 1]);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (parts.length != 3 || expiry > now) {
+                continue;
+            }
+            String shardId = parts[0];
+            try {
+                if (Files.exists(done.resolve(shardId))) {
+                    // Completed, the worker just has not removed its lease yet
+                    Files.deleteIfExists(leased.resolve(handle));
+                    continue;
+                }
+                move(leased.resolve(handle), pending.resolve(shardId));
+            } catch (NoSuchFileException e) {
+                // Extended, completed or requeued by another node meanwhile
+                continue;
+            }
+            logger.warning("Lease of " + parts[1] + " on " + shardId + " expired, requeued the shard");
+            requeued++;
+        }
+        return requeued;
+    }
+
+    @Override
+    public Status status() throws IOException {
+        Set<String> completed = new HashSet<>(list(done));
+        Set<String> held = new HashSet<>();
+        for (String handle : list(leased)) {
+            held.add(handle.split(SEPARATOR)[0]);
+        }
+        held.removeAll(completed);
+        Set<String> waiting = new HashSet<>(list(pending));
+        waiting.removeAll(completed);
+        waiting.removeAll(held);
+        return new Status(waiting.size(), held.size(), completed.size());
+    }
+
+    @Override
+    public Map<String, String> results() throws IOException {
+        Map<String, String> results = new TreeMap<>();
+        for (String shardId : list(done)) {
+            results.put(shardId, new String(Files.readAllBytes(done.resolve(shardId)), StandardCharsets.UTF_8));
+        }
+        return results;
+    }
+
+    private String leaseName(String shardId, String workerId) {
+        long expiry = System.currentTimeMillis() + leaseDuration.toMillis();
+        return shardId + SEPARATOR + workerId + SEPARATOR + expiry;
+    }
+
+    // Shard files in id order, leaving out temporary files
+    private static List<String> list(Path directory) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                .filter(name -> !name.startsWith("."))
+                .sorted()
+                .forEach(names::add);
+        }
+        return names;
+    }
+
+    // Of several nodes renaming the same file, only the first still finds it
+    private static void move(Path from, Path to) throws IOException {
+        Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), ".", ".tmp");
+        try {
+            Files.write(temp, content.getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String checkName(String name) {
+        if (name.isEmpty() || name.startsWith(".") || name.contains(SEPARATOR) || !name.matches("[\\w.-]+")) {
+            throw new IllegalArgumentException("Invalid shard or worker name: " + name);
+        }
+        return name;
+    }
+}
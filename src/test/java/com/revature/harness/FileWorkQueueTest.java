@@ -0,0 +1,143 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileWorkQueueTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void claimRenamesThePendingShardIntoALease() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory, Duration.ofMinutes(5));
+        queue.add("shard-1", "a\nb\n");
+
+        WorkQueue.Lease lease = queue.claim("node-1");
+
+        assertNotNull(lease);
+        assertEquals("shard-1", lease.shardId());
+        assertEquals("a\nb\n", lease.payload());
+        assertEquals(Collections.emptyList(), names("pending"));
+        List<String> leased = names("leased");
+        assertEquals(1, leased.size());
+        assertTrue(leased.get(0).startsWith("shard-1@node-1@"), leased.get(0));
+        assertNull(queue.claim("node-2"));
+    }
+
+    @Test
+    public void expiredLeaseIsRequeuedForAnotherWorker() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory, Duration.ZERO);
+        queue.add("shard-1", "a\n");
+        WorkQueue.Lease lost = queue.claim("node-1");
+
+        assertEquals(1, queue.requeueExpired());
+        assertEquals(Collections.singletonList("shard-1"), names("pending"));
+        assertEquals(Collections.emptyList(), names("leased"));
+
+        WorkQueue.Lease lease = queue.claim("node-2");
+        assertNotNull(lease);
+        assertEquals("node-2", lease.workerId());
+        // The first worker's lease file has been renamed away
+        assertFalse(queue.heartbeat(lost));
+    }
+
+    @Test
+    public void heartbeatExtendsALiveLease() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory, Duration.ofMinutes(5));
+        queue.add("shard-1", "a\n");
+        WorkQueue.Lease lease = queue.claim("node-1");
+        String before = names("leased").get(0);
+
+        assertEquals(0, queue.requeueExpired());
+        sleepPastMillisecond();
+        assertTrue(queue.heartbeat(lease));
+
+        List<String> leased = names("leased");
+        assertEquals(1, leased.size());
+        assertNotEquals(before, leased.get(0));
+        assertTrue(expiry(leased.get(0)) > expiry(before));
+    }
+
+    @Test
+    public void completeStoresTheResultAndDropsARequeuedCopy() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory, Duration.ZERO);
+        queue.add("shard-1", "a\n");
+        WorkQueue.Lease lease = queue.claim("node-1");
+        queue.requeueExpired();
+
+        queue.complete(lease, "PASS\ta\n");
+
+        assertEquals(Collections.emptyList(), names("pending"));
+        assertEquals(Collections.emptyList(), names("leased"));
+        assertEquals(Collections.singletonMap("shard-1", "PASS\ta\n"), queue.results());
+        WorkQueue.Status status = queue.status();
+        assertEquals(1, status.done());
+        assertTrue(status.finished());
+    }
+
+    @Test
+    public void addingAQueuedShardAgainDoesNothing() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory, Duration.ofMinutes(5));
+        queue.add("shard-1", "a\n");
+        queue.claim("node-1");
+
+        queue.add("shard-1", "a\n");
+
+        assertEquals(Collections.emptyList(), names("pending"));
+        assertEquals(1, queue.status().total());
+    }
+
+    @Test
+    public void emptyQueueIsOnlySealedOnceTheCoordinatorSaysSo() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory, Duration.ofMinutes(5));
+        assertTrue(queue.status().finished());
+        assertFalse(queue.isSealed());
+
+        queue.seal();
+
+        assertTrue(new FileWorkQueue(directory).isSealed());
+    }
+
+    @Test
+    public void rejectsNamesThatWouldBreakLeaseFileNames() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory, Duration.ofMinutes(5));
+        assertThrows(IllegalArgumentException.class, () -> queue.add("shard@1", ""));
+        assertThrows(IllegalArgumentException.class, () -> queue.add(".hidden", ""));
+        assertThrows(IllegalArgumentException.class, () -> queue.claim("node/1"));
+    }
+
+    private List<String> names(String state) throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve(state))) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static long expiry(String leaseName) {
+        return Long.parseLong(leaseName.substring(leaseName.lastIndexOf('@') + 1));
+    }
+
+    // Lease expiry times have millisecond resolution
+    private static void sleepPastMillisecond() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.revature.harness;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares what a test needs to run. Tests without the annotation are
+ * BROWSER tests.
+ *
+ * SCRIPT tests only check what the page's scripts compute (element text and
+ * console output), so ScriptTier runs them without a browser. BROWSER tests
+ * need a real page, e.g. for rendering, layout or events.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface GradingTier {
+    Tier value();
+
+    enum Tier {
+        // Declared cheapest first; TierExtension.Orderer runs tests in this order
+        SCRIPT,
+        BROWSER
+    }
+}
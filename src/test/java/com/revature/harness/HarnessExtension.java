@@ -0,0 +1,683 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolutionException;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+/**
+ * JUnit extension that owns the harness lifecycle: browser detection, serving
+ * the submission's page, leasing a browser session, loading the page before
+ * each test and handing the session back afterwards. Register it through
+ * @SeleniumHarness, which also registers the extensions it works with.
+ *
+ * Test and @BeforeEach methods can declare parameters of type WebDriver,
+ * WebDriverWait, LabPage and @PageUrl String. SCRIPT-tier tests and tests of
+ * a @SharedPage class have no browser, so they can only ask for LabPage and
+ * the URL; a SCRIPT-tier test whose scripts were inconclusive without a
+ * browser runs in one after all.
+ *
+ * The browser session is a scoped resource kept in the ExtensionContext.Store:
+ *   METHOD - leased before each test and released after it (default)
+ *   CLASS  - leased by the first test of a class and released after the class
+ *   SUITE  - leased by the first test of a launcher run and released when it ends
+ * Wider scopes save the lease and reset per test. Every test still gets a
+ * fresh navigation and an empty console buffer, but cookies and web storage
+ * carry over between tests sharing a session. A shared session that stops
+ * responding is replaced. SUITE scope assumes tests do not run in parallel
+ * within one launcher run; BatchGrader uses a launcher per submission.
+ *
+ * Serving the page and detecting the browser plus leasing a session run as
+ * concurrent SetupStages; navigation starts once both are done, and a
+ * failure in one cancels the other. The wait, script and page load timeouts
+ * come from AdaptiveTimeouts.
+ *
+ * Configuration (system properties):
+ *   selenium.scope           - "method", "class" or "suite"; overrides @SeleniumHarness.
+ *                              This is how long a lease lasts; SessionPool's
+ *                              selenium.pool.scope only affects released sessions
+ *   selenium.submission.root - project folder containing the lab (default: working directory)
+ *   selenium.serve.resources - comma-separated folders below the project folder served along
+ *                              with the page's own folder (default "resources")
+ */
+public class HarnessExtension implements BeforeEachCallback, AfterEachCallback, AfterAllCallback, ParameterResolver {
+    private static final Logger logger = TestDiagnostics.logger(HarnessExtension.class);
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(HarnessExtension.class);
+    private static final String PAGE = "page";
+    private static final String SESSION = "session";
+    private static final String SHARED_PAGE = "sharedPage";
+    private static final String MOUNT = "mount";
+    private static final String SERVE_MODE = "serveMode";
+
+    private static final List<String> RESOURCE_DIRECTORIES =
+        Arrays.asList(System.getProperty("selenium.serve.resources", "resources").split(","));
+
+    private static final String[] HTML_PATHS = {
+        "src/main/Callbacks.html",
+        "Callbacks.html",
+        "src/test/resources/Callbacks.html",
+        "test-resources/Callbacks.html",
+        "src/main/resources/Callbacks.html"
+    };
+
+    // Fixed defaults unless adaptive timeouts shorten them from this node's history
+    static final Duration WAIT_TIMEOUT = AdaptiveTimeouts.shared().timeout(AdaptiveTimeouts.WAIT, Duration.ofSeconds(30));
+    static final Duration PAGE_LOAD_TIMEOUT =
+        AdaptiveTimeouts.shared().timeout(AdaptiveTimeouts.NAVIGATE, Duration.ofSeconds(60));
+    static final Duration WAIT_POLL_INTERVAL = Duration.ofMillis(50);
+
+    /**
+     * Root folder of the submission under test; BatchGrader sets it per worker thread.
+     */
+    public static final InheritableThreadLocal<File> SUBMISSION_ROOT = new InheritableThreadLocal<>();
+
+    // Browser sessions are shared between tests instead of started per test
+    private static final SessionPool SESSION_POOL = SessionPool.fromSystemProperties();
+
+    // With selenium.pool.mode=contexts, tests get isolated contexts in shared browsers instead
+    private static final ContextMultiplexer CONTEXTS =
+        ContextMultiplexer.isEnabled() ? ContextMultiplexer.fromSystemProperties() : null;
+
+    public enum Scope { METHOD, CLASS, SUITE }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        if (ResultCache.Extension.isHit(context)) {
+            return;
+        }
+        try {
+            printEnvironmentInfo();
+
+            // Logic-only checks run the page's scripts in the embedded engine; no browser is started
+            if (ScriptTier.ENABLED && TierExtension.tierOf(context.getTestMethod()) == GradingTier.Tier.SCRIPT) {
+                if (runScriptTier(context)) {
+                    return;
+                }
+            }
+
+            // Read-only classes share one capture of the page instead of loading it per test
+            SharedPage sharedPage = context.getTestClass()
+                .flatMap(testClass -> AnnotationSupport.findAnnotation(testClass, SharedPage.class))
+                .orElse(null);
+            if (sharedPage != null) {
+                context.getStore(NAMESPACE).put(PAGE, sharedPage(context, sharedPage));
+                return;
+            }
+
+            loadPage(context);
+
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "=== SETUP FAILED === " + e.getMessage(), e);
+
+            collectBrowserConsole(context);
+            releaseSession(context);
+            throw new RuntimeException("Setup failed", e);
+        }
+    }
+
+    /**
+     * Serves and loads the page in a browser session and returns it as the test's page.
+     */
+    private static LabPage loadPage(ExtensionContext context) throws Exception {
+        // 1. Serve the page while the browser is detected and a session leased.
+        // Neither needs the other; navigation waits for both, and a failure in
+        // one cancels the other.
+        File root = submissionRoot();
+        SetupStage<Served> serving = SetupStage.start(() -> serve(root));
+        SetupStage<Leased> leasing = SetupStage.start(() -> lease(context));
+        serving.cancelOnFailureOf(leasing);
+        leasing.cancelOnFailureOf(serving);
+        Served served;
+        Leased leased;
+        try {
+            served = serving.join();
+            leased = leasing.join();
+        } finally {
+            // A cancelled stage may still be stopping; a session it leased is released below
+            serving.await();
+            leasing.await();
+        }
+
+        // Stage timings overlap, so they are recorded as measured rather than added up
+        HarnessMetrics.record(HarnessMetrics.DETECT, leased.detectStart, leased.detectEnd);
+        HarnessMetrics.attribute("browser", leased.config.browserType);
+        HarnessMetrics.attribute("browserVersion", leased.config.browserVersion);
+        if (leased.session.launchProfile != null) {
+            HarnessMetrics.attribute("launchProfile", leased.session.launchProfile.name());
+        }
+        HarnessMetrics.record(HarnessMetrics.SERVE, served.start, served.end);
+        HarnessMetrics.attribute("submission", root.getAbsolutePath());
+        HarnessMetrics.record(HarnessMetrics.DRIVER_START, leased.detectEnd, leased.end);
+
+        // 2. Prepare the session for this test
+        long phaseStart = System.nanoTime();
+        Session session = leased.session;
+        String htmlUrl = served.url;
+
+        // Start this test's console buffer empty
+        session.console.clear();
+
+        // Pages on the in-memory origin need request interception on this session
+        if (InMemoryAssets.isVirtual(htmlUrl)) {
+            // The submission's files stay in memory until its class has finished
+            context.getParent().orElse(context).getStore(NAMESPACE).getOrComputeIfAbsent(MOUNT,
+                key -> (ExtensionContext.Store.CloseableResource) () -> InMemoryAssets.unmount(root));
+            if (!InMemoryAssets.attach(session.driver)) {
+                htmlUrl = startHttpServer(root, served.htmlFile);
+            }
+        }
+        // Attaching the page's files to the session is part of serving it
+        HarnessMetrics.record(HarnessMetrics.SERVE, phaseStart);
+        LabPage page = new LabPage(session.driver, session.wait, session.console, htmlUrl, WAIT_TIMEOUT);
+        context.getStore(NAMESPACE).put(PAGE, page);
+        context.getStore(NAMESPACE).put(SERVE_MODE, serveModeOf(htmlUrl));
+
+        // 3. Navigate to page
+        logger.fine("=== NAVIGATING TO PAGE ===");
+        logger.info("Navigating to: " + htmlUrl);
+        phaseStart = System.nanoTime();
+        session.driver.get(htmlUrl);
+        HarnessMetrics.record(HarnessMetrics.NAVIGATE, phaseStart);
+        AdaptiveTimeouts.shared().record(AdaptiveTimeouts.NAVIGATE, phaseStart);
+
+        // Wait for the load event; Callbacks.js has run by then
+        phaseStart = System.nanoTime();
+        PageReadiness.awaitDocumentReady(session.driver);
+        HarnessMetrics.record(HarnessMetrics.READY, phaseStart);
+        AdaptiveTimeouts.shared().record(AdaptiveTimeouts.WAIT, phaseStart);
+        logger.fine("Page loaded successfully");
+
+        // Waits for what the failing code should have produced will end early
+        List<String> errors = session.console.errors();
+        if (!errors.isEmpty()) {
+            HarnessMetrics.attribute("pageErrors", String.valueOf(errors.size()));
+            logger.info(() -> "Page scripts threw during load: " + String.join("; ", errors));
+        }
+
+        // Page probes are expensive; they run at FINE level or when the test fails
+        TestDiagnostics.onFailure(() -> printPageInfo(session.driver));
+        if (logger.isLoggable(Level.FINE)) {
+            printPageInfo(session.driver);
+        }
+        return page;
+    }
+
+    /**
+     * The capture of the page shared by a @SharedPage class, taken by its first test.
+     */
+    private static LabPage sharedPage(ExtensionContext context, SharedPage declaration) throws Exception {
+        ExtensionContext.Store classStore = context.getParent().orElse(context).getStore(NAMESPACE);
+        LabPage shared = classStore.get(SHARED_PAGE, LabPage.class);
+        if (shared != null) {
+            HarnessMetrics.attribute("sharedPage", "reused");
+            context.getStore(NAMESPACE).put(SERVE_MODE, serveModeOf(shared.url()));
+            return shared;
+        }
+
+        LabPage live = loadPage(context);
+        long phaseStart = System.nanoTime();
+        shared = new LabPage(PageCapture.take(live, declaration), live.url());
+        HarnessMetrics.record(HarnessMetrics.READY, phaseStart);
+        HarnessMetrics.attribute("sharedPage", "captured");
+        classStore.put(SHARED_PAGE, shared);
+        logger.fine("Captured the page for the rest of the class");
+
+        // Nothing reads the live page again, so there is nothing to probe on failure,
+        // and a per-test session can go back now
+        TestDiagnostics.onFailure(null);
+        if (scopeOf(context) == Scope.METHOD) {
+            Session session = context.getStore(NAMESPACE).remove(SESSION, Session.class);
+            if (session != null) {
+                session.close();
+            }
+        }
+        return shared;
+    }
+
+    private static Served serve(File root) throws Exception {
+        long start = System.nanoTime();
+        File htmlFile = findHtmlFile(root);
+        String url = determineHtmlUrl(root, htmlFile);
+        return new Served(htmlFile, url, start, System.nanoTime());
+    }
+
+    private static Leased lease(ExtensionContext context) throws InterruptedException {
+        long detectStart = System.nanoTime();
+        BrowserConfig config = BrowserDiscovery.detect();
+        long detectEnd = System.nanoTime();
+        // Lease a WebDriver session, or reuse the one held by the class or suite
+        Session session = session(context, config);
+        return new Leased(config, session, detectStart, detectEnd, System.nanoTime());
+    }
+
+    /**
+     * Runs the page's scripts without a browser and returns whether that
+     * settled the test's page; false when only a browser can tell.
+     */
+    private boolean runScriptTier(ExtensionContext context) throws Exception {
+        long phaseStart = System.nanoTime();
+        File htmlFile = findHtmlFile();
+        ScriptTier.Result result = ScriptTier.evaluate(htmlFile);
+        HarnessMetrics.record(HarnessMetrics.SCRIPT, phaseStart);
+        HarnessMetrics.attribute("submission", submissionRoot().getAbsolutePath());
+        if (result.inconclusive()) {
+            HarnessMetrics.attribute("tier", "script-inconclusive");
+            logger.info(() -> "Script tier inconclusive, checking in the browser: " + result.error());
+            return false;
+        }
+        HarnessMetrics.attribute("tier", "script");
+        context.getStore(NAMESPACE).put(PAGE, new LabPage(result, htmlFile.toURI().toString()));
+
+        if (result.failed()) {
+            throw new AssertionError("Scripts failed in the script tier: " + result.error());
+        }
+        logger.fine("Scripts evaluated without a browser");
+        return true;
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        logger.fine("=== TEARDOWN ===");
+        long phaseStart = System.nanoTime();
+        collectBrowserConsole(context);
+        if (scopeOf(context) == Scope.METHOD) {
+            Session session = context.getStore(NAMESPACE).remove(SESSION, Session.class);
+            if (session != null) {
+                session.close();
+            }
+        }
+        HarnessMetrics.record(HarnessMetrics.TEARDOWN, phaseStart);
+        logger.fine("Teardown completed");
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        // Release a class-scoped session now rather than when the store closes,
+        // so a class-scoped pool can be drained below
+        Session session = context.getStore(NAMESPACE).remove(SESSION, Session.class);
+        if (session != null) {
+            session.close();
+        }
+        if (SessionPool.SCOPE_CLASS.equals(SESSION_POOL.scope())) {
+            logger.fine("Closing pooled browser sessions for this class");
+            SESSION_POOL.drain();
+            if (CONTEXTS != null) {
+                CONTEXTS.shutdown();
+            }
+        }
+    }
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        if (!extensionContext.getTestMethod().isPresent()) {
+            return false;
+        }
+        Class<?> type = parameterContext.getParameter().getType();
+        if (type == String.class) {
+            return parameterContext.isAnnotated(PageUrl.class);
+        }
+        return type == WebDriver.class || type == WebDriverWait.class || type == LabPage.class;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        LabPage page = extensionContext.getStore(NAMESPACE).get(PAGE, LabPage.class);
+        if (page == null) {
+            throw new ParameterResolutionException("The page under test was not loaded");
+        }
+        Class<?> type = parameterContext.getParameter().getType();
+        if (type == LabPage.class) {
+            return page;
+        }
+        if (type == String.class) {
+            return page.url();
+        }
+        if (page.driver() == null) {
+            throw new ParameterResolutionException("SCRIPT-tier and @SharedPage tests run without a browser; "
+                + "declare a LabPage parameter instead of " + type.getSimpleName());
+        }
+        return type == WebDriver.class ? page.driver() : page.driverWait();
+    }
+
+    static Scope scopeOf(ExtensionContext context) {
+        String property = System.getProperty("selenium.scope");
+        if (property != null && !property.trim().isEmpty()) {
+            try {
+                return Scope.valueOf(property.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown selenium.scope '" + property + "'; expected one of "
+                    + Arrays.toString(Scope.values()), e);
+            }
+        }
+        return context.getTestClass()
+            .flatMap(testClass -> AnnotationSupport.findAnnotation(testClass, SeleniumHarness.class))
+            .map(SeleniumHarness::scope)
+            .orElse(Scope.METHOD);
+    }
+
+    // The store whose lifetime matches the session scope
+    private static ExtensionContext.Store sessionStore(ExtensionContext context) {
+        switch (scopeOf(context)) {
+            case SUITE:
+                return context.getRoot().getStore(NAMESPACE);
+            case CLASS:
+                return context.getParent().orElse(context).getStore(NAMESPACE);
+            default:
+                return context.getStore(NAMESPACE);
+        }
+    }
+
+    private static Session session(ExtensionContext context, BrowserConfig config) throws InterruptedException {
+        ExtensionContext.Store store = sessionStore(context);
+        Session session = store.get(SESSION, Session.class);
+        if (session != null) {
+            if (session.isHealthy()) {
+                logger.fine(() -> "Reusing the " + scopeOf(context).name().toLowerCase() + "-scoped browser session");
+                return session;
+            }
+            logger.info("Replacing unresponsive shared browser session");
+            store.remove(SESSION);
+            session.discard();
+        }
+        session = Session.lease(config);
+        store.put(SESSION, session);
+        return session;
+    }
+
+    private static void releaseSession(ExtensionContext context) {
+        Session session = sessionStore(context).remove(SESSION, Session.class);
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    private static void collectBrowserConsole(ExtensionContext context) {
+        LabPage page = context.getStore(NAMESPACE).remove(PAGE, LabPage.class);
+        if (page == null) {
+            return;
+        }
+        try {
+            for (String entry : page.consoleEntries()) {
+                HarnessMetrics.consoleEntry(entry);
+            }
+        } catch (RuntimeException e) {
+            logger.fine(() -> "Could not read browser console: " + e.getMessage());
+        }
+    }
+
+    private static void printEnvironmentInfo() {
+        if (!logger.isLoggable(Level.FINE)) {
+            return;
+        }
+        logger.fine("=== ENVIRONMENT INFO ===");
+        logger.fine("OS: " + BrowserDiscovery.OS_NAME + " (" + BrowserDiscovery.OS_ARCH + ")");
+        logger.fine("Architecture: " + (BrowserDiscovery.IS_ARM ? "ARM64" : "x86/x64"));
+        logger.fine("Java version: " + System.getProperty("java.version"));
+        logger.fine("Working directory: " + System.getProperty("user.dir"));
+        logger.fine("Submission root: " + submissionRoot().getAbsolutePath());
+    }
+
+    private static void printPageInfo(WebDriver driver) {
+        logger.info("Page title: " + driver.getTitle());
+        logger.info("Current URL: " + driver.getCurrentUrl());
+        logger.info("Page source length: " + driver.getPageSource().length());
+    }
+
+    static File submissionRoot() {
+        File root = SUBMISSION_ROOT.get();
+        if (root != null) {
+            return root;
+        }
+        return new File(System.getProperty("selenium.submission.root", System.getProperty("user.dir")));
+    }
+
+    /**
+     * Locates the page of the submission under test.
+     *
+     * @throws RuntimeException if it is in none of the expected locations
+     */
+    public static File findHtmlFile() {
+        return findHtmlFile(submissionRoot());
+    }
+
+    private static File findHtmlFile(File root) {
+        for (String htmlPath : HTML_PATHS) {
+            File testFile = new File(root, htmlPath);
+            if (testFile.exists()) {
+                logger.fine(() -> "Found HTML file: " + testFile.getAbsolutePath());
+                return testFile;
+            }
+        }
+
+        throw new RuntimeException("Could not find Callbacks.html in any expected location: " +
+            Arrays.toString(HTML_PATHS));
+    }
+
+    /**
+     * How pages are served unless serving falls back: "memory" or "http".
+     */
+    static String configuredServeMode() {
+        return InMemoryAssets.ENABLED ? "memory" : "http";
+    }
+
+    /**
+     * How the current test's page was served: "memory", "http" or "file", or
+     * null when the test loaded no page in a browser.
+     */
+    static String servedMode(ExtensionContext context) {
+        return context.getStore(NAMESPACE).get(SERVE_MODE, String.class);
+    }
+
+    private static String serveModeOf(String url) {
+        if (InMemoryAssets.isVirtual(url)) {
+            return "memory";
+        }
+        return url.startsWith("file:") ? "file" : "http";
+    }
+
+    private static String determineHtmlUrl(File root, File htmlFile) {
+        // Optionally serve from memory through request interception, with no server at all
+        if (InMemoryAssets.ENABLED) {
+            try {
+                return InMemoryAssets.urlFor(root, servedDirectories(root, htmlFile), htmlFile);
+            } catch (Exception e) {
+                logger.warning("In-memory serving failed, falling back to HTTP: " + e.getMessage());
+            }
+        }
+
+        // Serve from the in-process HTTP server; it is shared by every test in the JVM
+        try {
+            return startHttpServer(root, htmlFile);
+        } catch (Exception e) {
+            logger.warning("HTTP server failed, falling back to file URL: " + e.getMessage());
+        }
+
+        // Fallback to file URL
+        return "file://" + htmlFile.getAbsolutePath();
+    }
+
+    private static String startHttpServer(File root, File htmlFile) throws Exception {
+        StaticFileServer server = StaticFileServer.shared();
+        List<File> servedDirectories = servedDirectories(root, htmlFile);
+        String url = server.urlFor(root, servedDirectories, htmlFile);
+
+        logger.fine(() -> "Serving " + servedDirectories + " on port " + server.port());
+        logger.fine(() -> "HTTP server ready: " + url);
+        return url;
+    }
+
+    /**
+     * The folders below the project folder that are served: the page's own
+     * (src/main) and the resource folders. The page keeps its path below the
+     * project folder, so links such as ../../resources/styling.css resolve
+     * as on disk, while .git, driver/ and the configuration stay unreachable.
+     */
+    private static List<File> servedDirectories(File root, File htmlFile) throws IOException {
+        List<File> directories = new ArrayList<>();
+        directories.add(htmlFile.getCanonicalFile().getParentFile());
+        for (String name : RESOURCE_DIRECTORIES) {
+            File directory = new File(root, name.trim()).getCanonicalFile();
+            if (!name.trim().isEmpty() && directory.isDirectory()
+                    && directory.toPath().startsWith(root.getCanonicalFile().toPath())) {
+                directories.add(directory);
+            }
+        }
+        if (logger.isLoggable(Level.FINE)) {
+            for (File file : ResultCache.servedFiles(htmlFile)) {
+                if (file.exists()
+                        && directories.stream().noneMatch(directory -> file.toPath().startsWith(directory.toPath()))) {
+                    logger.fine(() -> "Not served, outside " + directories + ": " + file);
+                }
+            }
+        }
+        return directories;
+    }
+
+    private static WebDriver launchBrowser(BrowserConfig config) {
+        try {
+            return AdmissionControl.shared().launch(() -> {
+                // Only the launch itself counts, not the wait for admission
+                long launchStart = System.nanoTime();
+                WebDriver driver = BrowserFactory.create(config);
+                AdaptiveTimeouts.shared().record(AdaptiveTimeouts.LAUNCH, launchStart);
+                return driver;
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to launch a browser", e);
+        }
+    }
+
+    // Result of the serving stage
+    private static final class Served {
+        final File htmlFile;
+        final String url;
+        final long start;
+        final long end;
+
+        Served(File htmlFile, String url, long start, long end) {
+            this.htmlFile = htmlFile;
+            this.url = url;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    // Result of the detection and leasing stage
+    private static final class Leased {
+        final BrowserConfig config;
+        final Session session;
+        final long detectStart;
+        final long detectEnd;
+        final long end;
+
+        Leased(BrowserConfig config, Session session, long detectStart, long detectEnd, long end) {
+            this.config = config;
+            this.session = session;
+            this.detectStart = detectStart;
+            this.detectEnd = detectEnd;
+            this.end = end;
+        }
+    }
+
+    /**
+     * A leased browser session with its wait and console buffer. Closing it
+     * hands the session back to the pool, or closes its browser context.
+     */
+    private static final class Session implements ExtensionContext.Store.CloseableResource {
+        final WebDriver driver;
+        final WebDriverWait wait;
+        final ConsoleCapture console;
+        // What the browser was started with, which a pooled session may predate
+        final LaunchProfile launchProfile;
+        private boolean closed;
+
+        private Session(WebDriver driver) {
+            this.driver = driver;
+            this.console = ConsoleCapture.of(driver);
+            this.launchProfile = BrowserFactory.launchProfileOf(ContextMultiplexer.browserOf(driver));
+
+            // Poll often so waits return soon after the condition holds, and stop once the page has thrown
+            this.wait = new FailFastWait(driver, WAIT_TIMEOUT, console);
+            this.wait.pollingEvery(WAIT_POLL_INTERVAL);
+
+            // No implicit wait: it would stall every failed lookup inside explicit waits
+            driver.manage().timeouts().pageLoadTimeout(PAGE_LOAD_TIMEOUT);
+            driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+            driver.manage().timeouts().scriptTimeout(WAIT_TIMEOUT);
+        }
+
+        static Session lease(BrowserConfig config) throws InterruptedException {
+            logger.fine("=== LEASING WEBDRIVER ===");
+            WebDriver driver;
+            if (CONTEXTS != null) {
+                logger.fine(() -> "Browser contexts: up to " + CONTEXTS.contextsPerBrowser() + " per browser");
+                driver = CONTEXTS.open(() -> launchBrowser(config));
+            } else {
+                logger.fine(() -> "Session pool: size " + SESSION_POOL.maxSize() + ", scope " + SESSION_POOL.scope());
+                // New browsers only start once the node has memory and CPU for them
+                driver = SESSION_POOL.lease(() -> launchBrowser(config));
+            }
+            try {
+                return new Session(driver);
+            } catch (RuntimeException e) {
+                if (CONTEXTS != null) {
+                    CONTEXTS.close(driver);
+                } else {
+                    SESSION_POOL.discard(driver);
+                }
+                throw e;
+            }
+        }
+
+        boolean isHealthy() {
+            try {
+                return !driver.getWindowHandles().isEmpty();
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        // Quits the session instead of returning it for reuse
+        synchronized void discard() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (CONTEXTS != null) {
+                CONTEXTS.close(driver);
+            } else {
+                SESSION_POOL.discard(driver);
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // Hand the session back to the pool; it is reset or quit there.
+            // A browser context is closed instead; its browser stays up for other tests.
+            if (CONTEXTS != null) {
+                CONTEXTS.close(driver);
+            } else {
+                SESSION_POOL.release(driver);
+            }
+        }
+    }
+}
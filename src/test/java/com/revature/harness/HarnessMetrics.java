@@ -0,0 +1,395 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonOutput;
+
+/**
+ * Per-test phase timings and browser console capture.
+ *
+ * The harness records how long each setup and teardown phase takes; the
+ * extension adds the "assert" phase (the test method itself) and the outcome.
+ * After every test class its records are appended to timings.jsonl (one JSON
+ * object per test) and timings.csv, and dropped from memory; the first class
+ * of a JVM replaces the files of the previous run. Optionally metrics.prom is
+ * rewritten as well, from running totals and a bounded sample of each phase's
+ * durations, so the cost per class does not grow with the run.
+ *
+ * Configuration (system properties):
+ *   selenium.metrics            - set to "false" to disable the reports
+ *   selenium.metrics.dir        - report directory (default target/harness-metrics)
+ *   selenium.metrics.prometheus - set to "true" to also write metrics.prom
+ */
+public class HarnessMetrics {
+    public static final String DETECT = "detect";
+    public static final String SERVE = "serve";
+    public static final String SCRIPT = "script";
+    public static final String DRIVER_START = "driverStart";
+    public static final String NAVIGATE = "navigate";
+    public static final String READY = "ready";
+    public static final String ASSERT = "assert";
+    public static final String TEARDOWN = "teardown";
+    public static final List<String> PHASES = Collections.unmodifiableList(
+        Arrays.asList(DETECT, SERVE, SCRIPT, DRIVER_START, NAVIGATE, READY, ASSERT, TEARDOWN));
+
+    private static final Logger logger = TestDiagnostics.logger(HarnessMetrics.class);
+    private static final int MAX_CONSOLE_ENTRIES = 500;
+    private static final boolean ENABLED =
+        Boolean.parseBoolean(System.getProperty("selenium.metrics", "true"));
+    private static final boolean PROMETHEUS =
+        Boolean.parseBoolean(System.getProperty("selenium.metrics.prometheus", "false"));
+
+    // Durations kept per phase for the Prometheus quantiles
+    private static final int QUANTILE_SAMPLES = 1024;
+
+    private static final ThreadLocal<TestRecord> CURRENT = new ThreadLocal<>();
+    // Records of finished tests not yet written
+    private static final ConcurrentLinkedQueue<TestRecord> RECORDS = new ConcurrentLinkedQueue<>();
+    // Guarded by HarnessMetrics.class, like everything writeReports() touches
+    private static final Map<String, PhaseSummary> PHASE_SUMMARIES = new LinkedHashMap<>();
+    private static final Map<String, Integer> STATUSES = new LinkedHashMap<>();
+    private static long consoleEntries;
+    private static boolean reportsStarted;
+
+    private HarnessMetrics() {
+    }
+
+    /**
+     * Records the time elapsed since startNanos (from System.nanoTime()) for a
+     * phase of the current test. Repeated phases accumulate.
+     */
+    public static void record(String phase, long startNanos) {
+        record(phase, startNanos, System.nanoTime());
+    }
+
+    /**
+     * Records a phase that ran between two System.nanoTime() readings, e.g. on
+     * another thread. Phases that overlapped each other each get their own time.
+     */
+    public static void record(String phase, long startNanos, long endNanos) {
+        TestRecord record = CURRENT.get();
+        if (record != null) {
+            long micros = (endNanos - startNanos) / 1_000;
+            synchronized (record) {
+                record.phaseMicros.merge(phase, micros, Long::sum);
+            }
+        }
+    }
+
+    public static void attribute(String name, String value) {
+        TestRecord record = CURRENT.get();
+        if (record != null && value != null) {
+            synchronized (record) {
+                record.attributes.put(name, value);
+            }
+        }
+    }
+
+    /**
+     * Wraps a task so that, on whichever thread runs it, metrics go to the
+     * record of the test that is current on the calling thread.
+     */
+    static <T> Callable<T> propagate(Callable<T> task) {
+        TestRecord record = CURRENT.get();
+        return () -> {
+            TestRecord previous = CURRENT.get();
+            CURRENT.set(record);
+            try {
+                return task.call();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public static void consoleEntry(String entry) {
+        TestRecord record = CURRENT.get();
+        if (record != null && record.console.size() < MAX_CONSOLE_ENTRIES) {
+            record.console.add(entry);
+        }
+    }
+
+    /**
+     * Console entries recorded so far for the current test.
+     */
+    public static List<String> consoleEntries() {
+        TestRecord record = CURRENT.get();
+        return record == null ? Collections.emptyList() : new ArrayList<>(record.console);
+    }
+
+    public static File reportDirectory() {
+        return new File(System.getProperty("selenium.metrics.dir", "target" + File.separator + "harness-metrics"));
+    }
+
+    /**
+     * Appends the records of the tests finished since the last call to the
+     * reports and updates the Prometheus file.
+     */
+    public static synchronized void writeReports() {
+        List<TestRecord> records = new ArrayList<>();
+        for (TestRecord record; (record = RECORDS.poll()) != null; ) {
+            records.add(record);
+        }
+        if (!ENABLED || records.isEmpty()) {
+            return;
+        }
+        for (TestRecord record : records) {
+            summarize(record);
+        }
+        File directory = reportDirectory();
+        try {
+            Files.createDirectories(directory.toPath());
+            File json = new File(directory, "timings.jsonl");
+            File csv = new File(directory, "timings.csv");
+            if (!reportsStarted) {
+                write(json, "", false);
+                write(csv, csvHeader(), false);
+                reportsStarted = true;
+            }
+            write(json, toJsonLines(records), true);
+            write(csv, toCsv(records), true);
+            if (PROMETHEUS) {
+                write(new File(directory, "metrics.prom"), toPrometheus(), false);
+            }
+        } catch (IOException e) {
+            logger.warning("Could not write harness metrics: " + e.getMessage());
+        }
+    }
+
+    private static void write(File file, String content, boolean append) throws IOException {
+        if (append) {
+            Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } else {
+            Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void summarize(TestRecord record) {
+        for (Map.Entry<String, Long> phase : record.phaseMicros.entrySet()) {
+            PHASE_SUMMARIES.computeIfAbsent(phase.getKey(), key -> new PhaseSummary()).add(phase.getValue());
+        }
+        STATUSES.merge(record.status, 1, Integer::sum);
+        consoleEntries += record.console.size();
+    }
+
+    private static String toJsonLines(List<TestRecord> records) {
+        Json json = new Json();
+        StringWriter lines = new StringWriter();
+        for (TestRecord record : records) {
+            Map<String, Object> test = new LinkedHashMap<>();
+            test.put("class", record.testClass);
+            test.put("test", record.testName);
+            test.put("status", record.status);
+            test.put("startedAt", record.startedAt);
+            test.putAll(record.attributes);
+            Map<String, Double> phases = new LinkedHashMap<>();
+            for (Map.Entry<String, Long> phase : record.phaseMicros.entrySet()) {
+                phases.put(phase.getKey(), phase.getValue() / 1000.0);
+            }
+            test.put("phasesMillis", phases);
+            test.put("console", record.console);
+            // Compact, so that each test is exactly one line
+            try (JsonOutput output = json.newOutput(lines)) {
+                output.setPrettyPrint(false).write(test);
+            }
+            lines.append('\n');
+        }
+        return lines.toString();
+    }
+
+    // Fixed columns, since rows are appended class by class; phases outside PHASES are in timings.jsonl
+    private static String csvHeader() {
+        StringBuilder csv = new StringBuilder("class,test,status,startedAt,consoleEntries");
+        for (String phase : PHASES) {
+            csv.append(',').append(phase).append("Millis");
+        }
+        return csv.append('\n').toString();
+    }
+
+    private static String toCsv(List<TestRecord> records) {
+        StringBuilder csv = new StringBuilder();
+        for (TestRecord record : records) {
+            csv.append(csvField(record.testClass)).append(',')
+                .append(csvField(record.testName)).append(',')
+                .append(record.status).append(',')
+                .append(record.startedAt).append(',')
+                .append(record.console.size());
+            for (String phase : PHASES) {
+                Long micros = record.phaseMicros.get(phase);
+                csv.append(',');
+                if (micros != null) {
+                    csv.append(String.format(Locale.ROOT, "%.3f", micros / 1000.0));
+                }
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static String csvField(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    private static String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP selenium_harness_phase_seconds Duration of harness phases per test.\n");
+        out.append("# TYPE selenium_harness_phase_seconds summary\n");
+        for (Map.Entry<String, PhaseSummary> phase : PHASE_SUMMARIES.entrySet()) {
+            PhaseSummary summary = phase.getValue();
+            List<Long> values = summary.sortedSamples();
+            for (double quantile : new double[]{0.5, 0.9, 0.99}) {
+                out.append(String.format(Locale.ROOT, "selenium_harness_phase_seconds{phase=\"%s\",quantile=\"%s\"} %.6f%n",
+                    phase.getKey(), quantile, percentile(values, quantile) / 1_000_000.0));
+            }
+            out.append(String.format(Locale.ROOT, "selenium_harness_phase_seconds_sum{phase=\"%s\"} %.6f%n",
+                phase.getKey(), summary.sumMicros / 1_000_000.0));
+            out.append(String.format(Locale.ROOT, "selenium_harness_phase_seconds_count{phase=\"%s\"} %d%n",
+                phase.getKey(), summary.count));
+        }
+        out.append("# HELP selenium_harness_tests_total Tests run by outcome.\n");
+        out.append("# TYPE selenium_harness_tests_total counter\n");
+        for (Map.Entry<String, Integer> status : STATUSES.entrySet()) {
+            out.append(String.format(Locale.ROOT, "selenium_harness_tests_total{status=\"%s\"} %d%n",
+                status.getKey(), status.getValue()));
+        }
+        out.append("# HELP selenium_harness_console_entries_total Browser console entries captured.\n");
+        out.append("# TYPE selenium_harness_console_entries_total counter\n");
+        out.append("selenium_harness_console_entries_total ").append(consoleEntries).append('\n');
+        out.append("# HELP selenium_harness_live_resources Processes and directories the harness holds (see ResourceLedger).\n");
+        out.append("# TYPE selenium_harness_live_resources gauge\n");
+        for (Map.Entry<String, Integer> kind : ResourceLedger.liveCounts().entrySet()) {
+            out.append(String.format(Locale.ROOT, "selenium_harness_live_resources{kind=\"%s\"} %d%n",
+                kind.getKey(), kind.getValue()));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Nearest-rank percentile of an ascending list.
+     */
+    public static long percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.size());
+        return sorted.get(Math.min(sorted.size(), Math.max(1, rank)) - 1);
+    }
+
+    /**
+     * Count and sum of a phase's durations, with a uniform random sample of
+     * them (reservoir sampling) for the quantiles.
+     */
+    private static final class PhaseSummary {
+        final long[] samples = new long[QUANTILE_SAMPLES];
+        long count;
+        long sumMicros;
+
+        void add(long micros) {
+            if (count < samples.length) {
+                samples[(int) count] = micros;
+            } else {
+                long slot = ThreadLocalRandom.current().nextLong(count + 1);
+                if (slot < samples.length) {
+                    samples[(int) slot] = micros;
+                }
+            }
+            count++;
+            sumMicros += micros;
+        }
+
+        List<Long> sortedSamples() {
+            long[] kept = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+            Arrays.sort(kept);
+            List<Long> sorted = new ArrayList<>(kept.length);
+            for (long value : kept) {
+                sorted.add(value);
+            }
+            return sorted;
+        }
+    }
+
+    private static class TestRecord {
+        final String testClass;
+        final String testName;
+        final long startedAt = System.currentTimeMillis();
+        final Map<String, Long> phaseMicros = new LinkedHashMap<>();
+        final Map<String, String> attributes = new LinkedHashMap<>();
+        final List<String> console = new ArrayList<>();
+        String status = "running";
+        long assertStartNanos;
+
+        TestRecord(String testClass, String testName) {
+            this.testClass = testClass;
+            this.testName = testName;
+        }
+    }
+
+    /**
+     * JUnit extension that opens a record per test, times the test method as the
+     * "assert" phase and appends to the reports after each test class.
+     */
+    public static class Extension implements BeforeEachCallback, BeforeTestExecutionCallback,
+            AfterTestExecutionCallback, AfterEachCallback, AfterAllCallback {
+        @Override
+        public void beforeEach(ExtensionContext context) {
+            CURRENT.set(new TestRecord(context.getRequiredTestClass().getName(), context.getDisplayName()));
+        }
+
+        @Override
+        public void beforeTestExecution(ExtensionContext context) {
+            TestRecord record = CURRENT.get();
+            if (record != null) {
+                record.assertStartNanos = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void afterTestExecution(ExtensionContext context) {
+            TestRecord record = CURRENT.get();
+            if (record != null && record.assertStartNanos != 0) {
+                record(ASSERT, record.assertStartNanos);
+            }
+        }
+
+        @Override
+        public void afterEach(ExtensionContext context) {
+            TestRecord record = CURRENT.get();
+            CURRENT.remove();
+            if (record != null) {
+                record.status = context.getExecutionException().isPresent() ? "failed" : "passed";
+                RECORDS.add(record);
+            }
+        }
+
+        @Override
+        public void afterAll(ExtensionContext context) {
+            writeReports();
+        }
+    }
+}
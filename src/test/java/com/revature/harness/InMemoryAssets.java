@@ -0,0 +1,206 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.NetworkInterceptor;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+/**
+ * Serves lab files to the browser from memory, without an HTTP server.
+ *
+ * Pages are opened on a virtual origin (http://lab.localhost) and every request
+ * the browser makes is paused through CDP Fetch.requestPaused. Requests for a
+ * mounted document root are fulfilled from a heap copy of the file, read from
+ * disk once per JVM. A page and the files it links to are read when the page is
+ * mounted, so the page load itself does no file I/O. Anything else, whether a
+ * missing file or another origin, is answered at once with an error status
+ * instead of going to the network. A mount can be limited to some directories
+ * below its document root, with the same checks as StaticFileServer.
+ *
+ * A document root stays in memory until unmount(), which HarnessExtension
+ * calls when the test class that mounted it finishes. Interception lasts for
+ * one lease: SessionPool detaches it when a session comes back, so the next
+ * test can load a page from another origin.
+ *
+ * Configuration (system properties):
+ *   selenium.serve                 - "memory" to serve through interception (default "http")
+ *   selenium.serve.allowExternal   - set to "true" to let requests to other origins through
+ */
+public final class InMemoryAssets {
+    private static final Logger logger = TestDiagnostics.logger(InMemoryAssets.class);
+    public static final boolean ENABLED = "memory".equalsIgnoreCase(System.getProperty("selenium.serve", "http"));
+    private static final boolean ALLOW_EXTERNAL =
+        Boolean.parseBoolean(System.getProperty("selenium.serve.allowExternal", "false"));
+    private static final String HOST = "lab.localhost";
+
+    // Keyed by the document root followed by the served directories, as in StaticFileServer
+    private static final Map<List<Path>, String> MOUNTS = new ConcurrentHashMap<>();
+    private static final Map<String, List<Path>> ROOTS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_MOUNT = new AtomicInteger();
+    private static final Map<Path, byte[]> FILES = new ConcurrentHashMap<>();
+    private static final Map<WebDriver, NetworkInterceptor> INTERCEPTORS = new HashMap<>();
+
+    private InMemoryAssets() {
+    }
+
+    /**
+     * Returns the virtual URL of a page below a document root and loads the
+     * page and the files it references into memory.
+     */
+    public static String urlFor(File documentRoot, File htmlFile) throws IOException {
+        return urlFor(documentRoot, Collections.singletonList(documentRoot), htmlFile);
+    }
+
+    /**
+     * Like urlFor(File, File), but serves only the files in the given
+     * directories below the document root.
+     */
+    public static String urlFor(File documentRoot, List<File> servedDirectories, File htmlFile) throws IOException {
+        List<Path> mount = StaticFileServer.mountKey(documentRoot, servedDirectories);
+        String prefix = MOUNTS.computeIfAbsent(mount, key -> {
+            String path = "/" + NEXT_MOUNT.getAndIncrement() + "/";
+            ROOTS.put(path, key);
+            return path;
+        });
+        Path root = mount.get(0);
+        for (File file : ResultCache.servedFiles(htmlFile)) {
+            if (file.toPath().startsWith(root)) {
+                Path served = StaticFileServer.servedFile(mount, root.relativize(file.toPath()).toString());
+                if (served != null) {
+                    read(served);
+                }
+            }
+        }
+        return "http://" + HOST + prefix + StaticFileServer.relativeUrlPath(documentRoot, htmlFile);
+    }
+
+    /**
+     * Forgets a document root and drops its files from memory. A later
+     * urlFor() mounts it again.
+     */
+    public static void unmount(File documentRoot) throws IOException {
+        Path root = documentRoot.toPath().toRealPath();
+        MOUNTS.entrySet().removeIf(mount -> {
+            if (!mount.getKey().get(0).equals(root)) {
+                return false;
+            }
+            ROOTS.remove(mount.getValue());
+            return true;
+        });
+        FILES.keySet().removeIf(file -> file.startsWith(root));
+    }
+
+    public static boolean isVirtual(String url) {
+        return url.startsWith("http://" + HOST + "/");
+    }
+
+    /**
+     * Starts answering the session's requests from memory. Safe to call on
+     * every lease; a session is only intercepted once.
+     *
+     * @return false when the browser does not support interception
+     */
+    public static synchronized boolean attach(WebDriver driver) {
+        if (INTERCEPTORS.containsKey(driver)) {
+            return true;
+        }
+        if (ContextMultiplexer.contextOf(driver) != null) {
+            // DevTools interception follows a single tab, not one view among several
+            logger.fine("Request interception is not used for multiplexed browser contexts");
+            return false;
+        }
+        try {
+            INTERCEPTORS.put(driver, new NetworkInterceptor(driver, InMemoryAssets::handle));
+            return true;
+        } catch (RuntimeException e) {
+            logger.warning("Request interception unavailable: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Stops intercepting a session that is being quit or handed back.
+     */
+    public static void release(WebDriver driver) {
+        NetworkInterceptor interceptor;
+        synchronized (InMemoryAssets.class) {
+            interceptor = INTERCEPTORS.remove(driver);
+        }
+        if (interceptor != null) {
+            try {
+                interceptor.close();
+            } catch (Exception e) {
+                logger.fine(() -> "Could not close request interception: " + e.getMessage());
+            }
+        }
+    }
+
+    static HttpResponse handle(HttpRequest request) {
+        URI uri = URI.create(request.getUri());
+        if (!HOST.equals(uri.getHost())) {
+            if (ALLOW_EXTERNAL) {
+                return NetworkInterceptor.PROCEED_WITH_REQUEST;
+            }
+            logger.fine(() -> "Blocked request to " + uri);
+            return error(403, "Blocked by the test harness: " + uri);
+        }
+        if (request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD) {
+            return error(405, "Method not allowed");
+        }
+
+        String path = uri.getPath();
+        int slash = path.indexOf('/', 1);
+        List<Path> mount = slash < 0 ? null : ROOTS.get(path.substring(0, slash + 1));
+        Path target = mount == null ? null : StaticFileServer.servedFile(mount, path.substring(slash + 1));
+        if (target == null) {
+            return error(404, "Not found: " + path);
+        }
+        byte[] body;
+        try {
+            body = read(target);
+        } catch (UncheckedIOException e) {
+            return error(404, "Not found: " + path);
+        }
+        HttpResponse response = new HttpResponse()
+            .setStatus(200)
+            .setHeader("Content-Type", StaticFileServer.contentType(target))
+            .setHeader("Cache-Control", "no-store");
+        if (request.getMethod() == HttpMethod.GET) {
+            response.setContent(Contents.bytes(body));
+        }
+        return response;
+    }
+
+    // Reads a file into the heap on first use; later requests never touch the disk
+    private static byte[] read(Path file) {
+        return FILES.computeIfAbsent(file, path -> {
+            try {
+                return Files.readAllBytes(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static HttpResponse error(int status, String message) {
+        return new HttpResponse()
+            .setStatus(status)
+            .setHeader("Content-Type", "text/plain; charset=utf-8")
+            .setContent(Contents.utf8String(message));
+    }
+}
@@ -0,0 +1,117 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+public class InMemoryAssetsTest {
+    @TempDir
+    Path directory;
+
+    private File site;
+    private File page;
+
+    @BeforeEach
+    public void createSite() throws IOException {
+        Path root = Files.createDirectories(directory.resolve("site"));
+        Files.write(root.resolve("index.html"),
+            "<script src=\"app.js\"></script>".getBytes(StandardCharsets.UTF_8));
+        Files.write(root.resolve("app.js"), "run();".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("secret.txt"), "secret".getBytes(StandardCharsets.UTF_8));
+        site = root.toFile();
+        page = root.resolve("index.html").toFile();
+    }
+
+    @AfterEach
+    public void unmount() throws IOException {
+        InMemoryAssets.unmount(site);
+    }
+
+    @Test
+    public void servesMountedFilesOnTheVirtualOrigin() throws IOException {
+        String url = InMemoryAssets.urlFor(site, page);
+        assertTrue(InMemoryAssets.isVirtual(url), url);
+
+        HttpResponse response = get(url);
+        assertEquals(200, response.getStatus());
+        assertEquals("text/html; charset=utf-8", response.getHeader("Content-Type"));
+        assertEquals("<script src=\"app.js\"></script>", Contents.string(response));
+
+        HttpResponse script = get(base(url) + "app.js");
+        assertEquals("text/javascript; charset=utf-8", script.getHeader("Content-Type"));
+        assertEquals("run();", Contents.string(script));
+    }
+
+    @Test
+    public void servesLinkedFilesFromTheCopyReadAtMountTime() throws IOException {
+        String url = InMemoryAssets.urlFor(site, page);
+        Files.write(site.toPath().resolve("app.js"), "changed();".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("run();", Contents.string(get(base(url) + "app.js")));
+    }
+
+    @Test
+    public void refusesPathsThatClimbOutOfTheRoot() throws IOException {
+        String base = base(InMemoryAssets.urlFor(site, page));
+
+        assertEquals(404, get(base + "%2e%2e/secret.txt").getStatus());
+        assertEquals(404, get(base + "..%2fsecret.txt").getStatus());
+        assertEquals(404, get(base + "missing.js").getStatus());
+    }
+
+    @Test
+    public void refusesLinksThatPointOutOfTheRoot() throws IOException {
+        try {
+            Files.createSymbolicLink(site.toPath().resolve("escape.txt"), directory.resolve("secret.txt"));
+        } catch (UnsupportedOperationException | IOException e) {
+            Assumptions.assumeTrue(false, "Symbolic links are not supported here");
+        }
+        String base = base(InMemoryAssets.urlFor(site, page));
+
+        assertEquals(404, get(base + "escape.txt").getStatus());
+    }
+
+    @Test
+    public void answersOtherOriginsAndMethodsWithoutTheNetwork() throws IOException {
+        String url = InMemoryAssets.urlFor(site, page);
+
+        assertEquals(403, get("https://example.com/tracker.js").getStatus());
+        assertEquals(405, InMemoryAssets.handle(new HttpRequest(HttpMethod.POST, url)).getStatus());
+        HttpResponse head = InMemoryAssets.handle(new HttpRequest(HttpMethod.HEAD, url));
+        assertEquals(200, head.getStatus());
+        assertEquals("", Contents.string(head));
+    }
+
+    @Test
+    public void unmountedRootIsNoLongerServed() throws IOException {
+        String url = InMemoryAssets.urlFor(site, page);
+
+        InMemoryAssets.unmount(site);
+
+        assertEquals(404, get(url).getStatus());
+        String remounted = InMemoryAssets.urlFor(site, page);
+        assertEquals(200, get(remounted).getStatus());
+    }
+
+    private static HttpResponse get(String url) {
+        return InMemoryAssets.handle(new HttpRequest(HttpMethod.GET, url));
+    }
+
+    private static String base(String url) {
+        return url.substring(0, url.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,141 @@
+package com.revature.harness;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+/**
+ * The loaded page of the submission under test, as handed to a test by
+ * HarnessExtension.
+ *
+ * The read helpers work in both tiers: for a BROWSER test they go through the
+ * WebDriver session, for a SCRIPT test they read the result of the embedded
+ * script engine, and in a @SharedPage class they read the class's capture of
+ * the page. Without a session, driver() and driverWait() are null.
+ */
+public final class LabPage {
+    private final WebDriver driver;
+    private final WebDriverWait wait;
+    private final ConsoleCapture console;
+    private final ScriptTier.Result scriptResult;
+    private final PageCapture capture;
+    private final String url;
+    private final Duration timeout;
+
+    LabPage(WebDriver driver, WebDriverWait wait, ConsoleCapture console, String url, Duration timeout) {
+        this.driver = driver;
+        this.wait = wait;
+        this.console = console;
+        this.scriptResult = null;
+        this.capture = null;
+        this.url = url;
+        this.timeout = timeout;
+    }
+
+    LabPage(ScriptTier.Result scriptResult, String url) {
+        this.driver = null;
+        this.wait = null;
+        this.console = null;
+        this.scriptResult = scriptResult;
+        this.capture = null;
+        this.url = url;
+        this.timeout = null;
+    }
+
+    LabPage(PageCapture capture, String url) {
+        this.driver = null;
+        this.wait = null;
+        this.console = null;
+        this.scriptResult = null;
+        this.capture = capture;
+        this.url = url;
+        this.timeout = null;
+    }
+
+    /**
+     * The browser session showing the page, or null in the script tier.
+     */
+    public WebDriver driver() {
+        return driver;
+    }
+
+    /**
+     * A wait on driver() with the harness timeout and polling interval, or null in the script tier.
+     */
+    public WebDriverWait driverWait() {
+        return wait;
+    }
+
+    /**
+     * The URL the page was loaded from.
+     */
+    public String url() {
+        return url;
+    }
+
+    public GradingTier.Tier tier() {
+        return scriptResult != null ? GradingTier.Tier.SCRIPT : GradingTier.Tier.BROWSER;
+    }
+
+    /**
+     * Waits until each element exists and has text, using a mutation observer in
+     * the page rather than polling, and returns the text keyed by id.
+     */
+    public Map<String, String> awaitText(String... ids) {
+        if (scriptResult != null) {
+            return scriptResult.requireText(Arrays.asList(ids));
+        }
+        if (capture != null) {
+            return capture.requireText(Arrays.asList(ids));
+        }
+        long start = System.nanoTime();
+        Map<String, String> texts = PageReadiness.awaitText(driver, Arrays.asList(ids));
+        AdaptiveTimeouts.shared().record(AdaptiveTimeouts.WAIT, start);
+        return texts;
+    }
+
+    /**
+     * Reads the text of several elements in one WebDriver round trip so checks
+     * can assert against the local copy.
+     */
+    public DomSnapshot snapshot(String... ids) {
+        if (scriptResult != null) {
+            return scriptResult.snapshot(Arrays.asList(ids));
+        }
+        if (capture != null) {
+            return capture.snapshot(Arrays.asList(ids));
+        }
+        return DomSnapshot.capture(driver, Arrays.asList(ids));
+    }
+
+    /**
+     * Waits until the page has made at least count console calls and returns
+     * them, without polling the DOM.
+     */
+    public List<String> awaitConsoleEntries(int count) throws InterruptedException {
+        if (scriptResult != null) {
+            return scriptResult.requireConsoleEntries(count);
+        }
+        if (capture != null) {
+            return capture.requireConsoleEntries(count);
+        }
+        long start = System.nanoTime();
+        List<String> entries = console.awaitEntries(count, timeout);
+        AdaptiveTimeouts.shared().record(AdaptiveTimeouts.WAIT, start);
+        return entries;
+    }
+
+    // Everything the page logged during this test
+    List<String> consoleEntries() {
+        if (scriptResult != null) {
+            return scriptResult.consoleEntries();
+        }
+        if (capture != null) {
+            return capture.consoleEntries();
+        }
+        return console.entries();
+    }
+}
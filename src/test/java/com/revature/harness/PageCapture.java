@@ -0,0 +1,81 @@
+package com.revature.harness;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.openqa.selenium.TimeoutException;
+
+/**
+ * Immutable copy of a loaded page's element text and console output, shared
+ * by the tests of a @SharedPage class.
+ */
+final class PageCapture {
+    private final DomSnapshot texts;
+    private final List<String> console;
+    // Why the awaited content was missing when the page was captured, or null
+    private final String failure;
+
+    private PageCapture(DomSnapshot texts, List<String> console, String failure) {
+        this.texts = texts;
+        this.console = Collections.unmodifiableList(new ArrayList<>(console));
+        this.failure = failure;
+    }
+
+    /**
+     * Waits for the declared content of a freshly loaded page and captures it.
+     * Content that never appears is recorded rather than thrown, so that tests
+     * which do not need it can still pass.
+     */
+    static PageCapture take(LabPage page, SharedPage declaration) throws InterruptedException {
+        String failure = null;
+        try {
+            if (declaration.value().length > 0) {
+                page.awaitText(declaration.value());
+            }
+            if (declaration.consoleEntries() > 0) {
+                page.awaitConsoleEntries(declaration.consoleEntries());
+            }
+        } catch (AssertionError | TimeoutException e) {
+            failure = e.getMessage();
+        }
+        return new PageCapture(DomSnapshot.captureAll(page.driver()), page.consoleEntries(), failure);
+    }
+
+    DomSnapshot snapshot(List<String> ids) {
+        Map<String, String> selected = new LinkedHashMap<>();
+        for (String id : ids) {
+            selected.put(id, texts.texts().get(id));
+        }
+        return DomSnapshot.of(selected);
+    }
+
+    Map<String, String> requireText(List<String> ids) {
+        Map<String, String> selected = new LinkedHashMap<>();
+        for (String id : ids) {
+            String text = texts.texts().get(id);
+            if (text == null || text.trim().isEmpty()) {
+                throw missing("text of " + ids);
+            }
+            selected.put(id, text);
+        }
+        return selected;
+    }
+
+    List<String> requireConsoleEntries(int count) {
+        if (console.size() < count) {
+            throw missing(count + " console entries (the page logged " + console.size() + ")");
+        }
+        return console;
+    }
+
+    List<String> consoleEntries() {
+        return console;
+    }
+
+    private AssertionError missing(String what) {
+        return new AssertionError("The shared page capture has no " + what
+            + (failure == null ? "" : "; when it was captured: " + failure));
+    }
+}
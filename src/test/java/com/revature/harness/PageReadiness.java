@@ -0,0 +1,123 @@
+package com.revature.harness;
+
+import java.util.List;
+import java.util.Map;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Event-driven page readiness checks.
+ *
+ * Instead of sleeping or polling over the wire, each wait runs one asynchronous
+ * script in the page that listens for the relevant browser event (the load
+ * event, or DOM mutations on the target elements) and returns the moment the
+ * condition holds. The only timeout is the session's script timeout, which
+ * HarnessExtension sets to the same value as the WebDriverWait timeout.
+ *
+ * A page whose scripts have failed will usually never reach the condition, so
+ * text waits give up as soon as the page reports an error instead of running
+ * into the timeout.
+ */
+public class PageReadiness {
+    private static final String DOCUMENT_READY_SCRIPT =
+        "var done = arguments[arguments.length - 1];" +
+        "if (document.readyState === 'complete') { done(true); return; }" +
+        "window.addEventListener('load', function () { done(true); }, { once: true });";
+
+    // Installed as a preload script by ConsoleCapture. Records uncaught errors,
+    // unhandled rejections and failed <script> loads in window.__harnessErrors
+    // and announces each one with a harness-error event on the document.
+    static final String ERROR_RECORDER_SCRIPT =
+        "() => {" +
+        "  if (window.__harnessErrors) { return; }" +
+        "  var errors = window.__harnessErrors = [];" +
+        "  function record(message) {" +
+        "    errors.push(message);" +
+        "    document.dispatchEvent(new CustomEvent('harness-error'));" +
+        "  }" +
+        "  window.addEventListener('error', function (event) {" +
+        "    var target = event.target;" +
+        "    if (target && target.tagName === 'SCRIPT') {" +
+        "      record('Failed to load script ' + target.src);" +
+        "    } else if (target === window) {" +
+        "      record(String(event.message || event.error));" +
+        "    }" +
+        "  }, true);" +
+        "  window.addEventListener('unhandledrejection', function (event) {" +
+        "    record('Unhandled promise rejection: ' + String(event.reason));" +
+        "  });" +
+        "}";
+
+    // Resolves with { texts } once every id exists and is non-empty, or with
+    // { errors } as soon as the page has failed while they are still missing
+    private static final String TEXT_READY_SCRIPT =
+        "var ids = arguments[0];" +
+        "var done = arguments[arguments.length - 1];" +
+        "var errors = window.__harnessErrors;" +
+        "function texts() {" +
+        "  var result = {};" +
+        "  for (var i = 0; i < ids.length; i++) {" +
+        "    var element = document.getElementById(ids[i]);" +
+        "    if (!element) { return null; }" +
+        "    var text = element.innerText;" +
+        "    if (!text || !text.trim()) { return null; }" +
+        "    result[ids[i]] = text;" +
+        "  }" +
+        "  return result;" +
+        "}" +
+        "var ready = texts();" +
+        "if (ready) { done({ texts: ready }); return; }" +
+        "if (errors && errors.length) { done({ errors: errors }); return; }" +
+        "var observer = new MutationObserver(function () {" +
+        "  var current = texts();" +
+        "  if (current) { observer.disconnect(); done({ texts: current }); }" +
+        "});" +
+        "observer.observe(document.documentElement," +
+        "  { childList: true, subtree: true, characterData: true });" +
+        "document.addEventListener('harness-error', function () {" +
+        "  observer.disconnect(); done({ errors: window.__harnessErrors });" +
+        "}, { once: true });";
+
+    private PageReadiness() {
+    }
+
+    /**
+     * Waits for the document load event (all scripts at the end of body have run by then).
+     */
+    public static void awaitDocumentReady(WebDriver driver) {
+        runAsync(driver, "document ready", DOCUMENT_READY_SCRIPT);
+    }
+
+    /**
+     * Waits until every element exists and has non-empty text, and returns the
+     * text of each element keyed by id.
+     *
+     * @throws AssertionError at once if the page has thrown an uncaught error or
+     *         failed to load a script while the text is missing; needs the error
+     *         recorder that ConsoleCapture installs over BiDi
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, String> awaitText(WebDriver driver, List<String> ids) {
+        Map<String, Object> result = (Map<String, Object>) runAsync(driver, "text of " + ids, TEXT_READY_SCRIPT, ids);
+        List<String> errors = (List<String>) result.get("errors");
+        if (errors != null) {
+            throw pageFailed("text of " + ids, errors);
+        }
+        return (Map<String, String>) result.get("texts");
+    }
+
+    static AssertionError pageFailed(String awaited, List<String> errors) {
+        return new AssertionError("The page's scripts failed while waiting for " + awaited + ": "
+            + String.join("; ", errors));
+    }
+
+    private static Object runAsync(WebDriver driver, String description, String script, Object... args) {
+        try {
+            return ((JavascriptExecutor) driver).executeAsyncScript(script, args);
+        } catch (ScriptTimeoutException e) {
+            throw new TimeoutException("Timed out waiting for " + description, e);
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Ledger of the processes and directories the harness creates, so that none
+ * outlive it.
+ *
+ * Driver processes, browser setup processes and browser profile directories
+ * are recorded when they are created and crossed off when they are cleaned up,
+ * in a per-JVM file under <cache dir>/ledger/. Whatever is still recorded is
+ * cleaned up:
+ *   - by a shutdown hook, after the other shutdown hooks had a moment to quit
+ *     their sessions normally
+ *   - when the harness next starts on the node, for ledgers of JVMs that no
+ *     longer exist (killed, or a cleanup that threw), and
+ *   - by a periodic sweep, which also does that for JVMs that died meanwhile.
+ * A JVM claims a dead JVM's ledger by renaming it before cleaning up; a
+ * claimed ledger whose claimant died as well is claimed again.
+ * Processes are identified by pid and start time, so a reused pid is never
+ * killed. Cleaning up a profile also kills any browser still using it.
+ *
+ * liveCounts() reports what this JVM currently holds, per kind; HarnessMetrics
+ * exports it, so a count that keeps growing can be alerted on.
+ *
+ * Configuration (system properties):
+ *   selenium.reaper          - set to "false" to disable the ledger
+ *   selenium.reaper.interval - seconds between sweeps (default 300)
+ */
+final class ResourceLedger {
+    static final String DRIVER = "driver";
+    static final String PROFILE_SETUP = "profileSetup";
+    static final String PROFILE = "profile";
+    static final String PROFILE_STAGING = "profileStaging";
+
+    private static final Logger logger = TestDiagnostics.logger(ResourceLedger.class);
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("selenium.reaper", "true"));
+    private static final long INTERVAL_SECONDS = Long.getLong("selenium.reaper.interval", 300);
+    private static final long SHUTDOWN_GRACE_MILLIS = 2000;
+    private static final String PROCESS = "process";
+    private static final String DIRECTORY = "directory";
+    private static final String SUFFIX = ".ledger";
+    // A claimed ledger is named <ledger>.reaping-<claimant pid>-<claimant start millis>
+    private static final String REAPING = ".reaping-";
+    private static final ResourceLedger SHARED = new ResourceLedger(
+        new File(DiscoveryCache.cacheDirectory(), "ledger"), ProcessHandle.current());
+
+    private final File directory;
+    private final File file;
+    // Guarded by this; key is type and id
+    private final Map<String, Entry> live = new LinkedHashMap<>();
+    private int removedSinceCompaction;
+    private boolean started;
+
+    ResourceLedger(File directory, ProcessHandle owner) {
+        this.directory = directory;
+        this.file = new File(directory, owner.pid() + "-" + startMillis(owner) + SUFFIX);
+    }
+
+    static void trackProcess(String kind, ProcessHandle process) {
+        if (ENABLED) {
+            SHARED.add(new Entry(PROCESS, kind, process.pid() + ":" + startMillis(process)));
+        }
+    }
+
+    static void untrackProcess(ProcessHandle process) {
+        if (ENABLED) {
+            SHARED.remove(PROCESS, process.pid() + ":" + startMillis(process));
+        }
+    }
+
+    /**
+     * Records the driver processes this JVM has started for an executable
+     * that are not recorded yet. Drivers are started by Selenium, which does
+     * not expose them, so they are found among this JVM's child processes;
+     * call it once per driver started, not per session.
+     */
+    static void trackDriverProcesses(String driverPath) {
+        if (!ENABLED) {
+            return;
+        }
+        String name = new File(driverPath).getName();
+        ProcessHandle.current().children()
+            .filter(child -> child.info().command().map(command -> new File(command).getName().equals(name))
+                .orElse(false))
+            .forEach(child -> trackProcess(DRIVER, child));
+    }
+
+    static void trackDirectory(String kind, File directory) {
+        if (ENABLED) {
+            SHARED.add(new Entry(DIRECTORY, kind, directory.getAbsolutePath()));
+        }
+    }
+
+    static void untrackDirectory(File directory) {
+        if (ENABLED) {
+            SHARED.remove(DIRECTORY, directory.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Resources this JVM currently holds, by kind.
+     */
+    static Map<String, Integer> liveCounts() {
+        return SHARED.counts();
+    }
+
+    private synchronized void add(Entry entry) {
+        startOnce();
+        if (live.putIfAbsent(entry.key(), entry) == null) {
+            append("+\t" + entry);
+        }
+    }
+
+    private synchronized void remove(String type, String id) {
+        Entry entry = live.remove(type + "\t" + id);
+        if (entry != null) {
+            append("-\t" + entry);
+            removedSinceCompaction++;
+        }
+    }
+
+    synchronized Map<String, Integer> counts() {
+        forgetGone();
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Entry entry : live.values()) {
+            counts.merge(entry.kind, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    // The first resource of the JVM cleans up after dead JVMs and starts the sweeps
+    private void startOnce() {
+        if (started) {
+            return;
+        }
+        started = true;
+        reapDeadOwners();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "resource-ledger-shutdown"));
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "resource-ledger-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Cleans up after JVMs that died, forgets resources of this JVM that are
+     * already gone and rewrites the ledger without crossed-off entries.
+     */
+    void sweep() {
+        try {
+            reapDeadOwners();
+            Map<String, Integer> counts;
+            synchronized (this) {
+                counts = counts();
+                if (removedSinceCompaction > 0) {
+                    compact();
+                }
+            }
+            logger.fine(() -> "Live harness resources: " + counts);
+        } catch (RuntimeException e) {
+            logger.warning("Resource sweep failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cleans up the resources recorded by JVMs that no longer exist and
+     * returns how many there were.
+     */
+    int reapDeadOwners() {
+        File[] ledgers = directory.listFiles((dir, name) -> name.endsWith(SUFFIX) || name.contains(SUFFIX + REAPING));
+        if (ledgers == null) {
+            return 0;
+        }
+        ProcessHandle self = ProcessHandle.current();
+        int reaped = 0;
+        for (File ledger : ledgers) {
+            String name = ledger.getName();
+            int reaping = name.indexOf(SUFFIX + REAPING);
+            if (reaping >= 0) {
+                // Claimed before, by a JVM that may have died while cleaning up
+                if (claimantAlive(name.substring(reaping + SUFFIX.length() + REAPING.length()))) {
+                    continue;
+                }
+                name = name.substring(0, reaping + SUFFIX.length());
+            } else if (ledger.equals(file) || ownerAlive(name)) {
+                continue;
+            }
+            // Claim the ledger, so that concurrently starting JVMs reap it only once
+            File claimed = new File(directory, name + REAPING + self.pid() + "-" + startMillis(self));
+            try {
+                Files.move(ledger.toPath(), claimed.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                continue;
+            } catch (IOException e) {
+                logger.warning("Could not claim " + ledger + ": " + e.getMessage());
+                continue;
+            }
+            List<Entry> entries = read(claimed);
+            for (Entry entry : entries) {
+                entry.destroy();
+            }
+            reaped += entries.size();
+            claimed.delete();
+            int count = entries.size();
+            String owner = name;
+            if (count > 0) {
+                logger.info(() -> "Cleaned up " + count + " resources left behind by " + owner);
+            }
+        }
+        return reaped;
+    }
+
+    private void shutdown() {
+        long deadline = System.currentTimeMillis() + SHUTDOWN_GRACE_MILLIS;
+        List<Entry> remaining;
+        while (true) {
+            synchronized (this) {
+                forgetGone();
+                remaining = new ArrayList<>(live.values());
+            }
+            if (remaining.isEmpty() || System.currentTimeMillis() >= deadline) {
+                break;
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        if (!remaining.isEmpty()) {
+            logger.warning("Cleaning up " + remaining.size() + " resources still held at exit: " + counts());
+            for (Entry entry : remaining) {
+                entry.destroy();
+            }
+        }
+        file.delete();
+    }
+
+    private void append(String line) {
+        try {
+            Files.createDirectories(directory.toPath());
+            try (OutputStream out = new FileOutputStream(file, true)) {
+                out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            logger.warning("Could not update the resource ledger: " + e.getMessage());
+        }
+    }
+
+    // Drivers exit with their sessions without being crossed off; called with the lock held
+    private void forgetGone() {
+        int before = live.size();
+        live.values().removeIf(entry -> !entry.exists());
+        removedSinceCompaction += before - live.size();
+    }
+
+    // Called with the lock held
+    private void compact() {
+        StringBuilder content = new StringBuilder();
+        for (Entry entry : live.values()) {
+            content.append("+\t").append(entry).append('\n');
+        }
+        try {
+            File temp = File.createTempFile("ledger", ".tmp", directory);
+            Files.write(temp.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            removedSinceCompaction = 0;
+        } catch (IOException e) {
+            logger.warning("Could not compact the resource ledger: " + e.getMessage());
+        }
+    }
+
+    // Entries added and not crossed off, in order
+    private static List<Entry> read(File ledger) {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        try {
+            for (String line : Files.readAllLines(ledger.toPath(), StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t", 4);
+                if (fields.length != 4) {
+                    continue;
+                }
+                Entry entry = new Entry(fields[1], fields[2], fields[3]);
+                if ("+".equals(fields[0])) {
+                    entries.put(entry.key(), entry);
+                } else {
+                    entries.remove(entry.key());
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Could not read " + ledger + ": " + e.getMessage());
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    // Ledgers are named <pid>-<start millis>.ledger
+    private static boolean ownerAlive(String name) {
+        String[] parts = name.substring(0, name.length() - SUFFIX.length()).split("-");
+        try {
+            return parts.length == 2 && isRunning(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            // Not a ledger of ours; leave it alone
+            return true;
+        }
+    }
+
+    // Claimants are <pid>-<start millis>; older claims carry only the pid
+    private static boolean claimantAlive(String claimant) {
+        String[] parts = claimant.split("-");
+        try {
+            if (parts.length == 1) {
+                return ProcessHandle.of(Long.parseLong(parts[0])).map(ProcessHandle::isAlive).orElse(false);
+            }
+            return parts.length == 2 && isRunning(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static boolean isRunning(long pid, long startMillis) {
+        return ProcessHandle.of(pid)
+            .filter(ProcessHandle::isAlive)
+            .filter(process -> startMillis(process) == startMillis)
+            .isPresent();
+    }
+
+    private static long startMillis(ProcessHandle process) {
+        return process.info().startInstant().map(Instant::toEpochMilli).orElse(0L);
+    }
+
+    private static final class Entry {
+        final String type;
+        final String kind;
+        // <pid>:<start millis> for processes, the absolute path for directories
+        final String id;
+
+        Entry(String type, String kind, String id) {
+            this.type = type;
+            this.kind = kind;
+            this.id = id;
+        }
+
+        String key() {
+            return type + "\t" + id;
+        }
+
+        boolean exists() {
+            if (DIRECTORY.equals(type)) {
+                return new File(id).exists();
+            }
+            String[] parts = id.split(":");
+            try {
+                return isRunning(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                return false;
+            }
+        }
+
+        void destroy() {
+            if (DIRECTORY.equals(type)) {
+                File directory = new File(id);
+                BrowserProcesses.destroy(directory);
+                BrowserProfiles.delete(directory.toPath());
+                return;
+            }
+            String[] parts = id.split(":");
+            try {
+                long startMillis = Long.parseLong(parts[1]);
+                ProcessHandle.of(Long.parseLong(parts[0]))
+                    .filter(process -> startMillis(process) == startMillis)
+                    .ifPresent(process -> {
+                        logger.info("Killing leftover " + kind + " process " + process.pid());
+                        process.descendants().forEach(ProcessHandle::destroyForcibly);
+                        process.destroyForcibly();
+                    });
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                logger.fine(() -> "Ignoring malformed ledger entry " + this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return type + "\t" + kind + "\t" + id;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ResourceLedgerTest {
+    @TempDir
+    Path directory;
+
+    private File ledgers;
+    private Path profile;
+    private Process child;
+
+    @BeforeEach
+    public void createProfile() throws IOException {
+        ledgers = Files.createDirectories(directory.resolve("ledger")).toFile();
+        profile = Files.createDirectories(directory.resolve("profile/Default"));
+        Files.write(profile.resolve("Preferences"), "{}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    public void stopChild() {
+        if (child != null) {
+            child.destroyForcibly();
+        }
+    }
+
+    @Test
+    public void reapsWhatADeadOwnerLeftBehind() throws IOException {
+        File ledger = writeLedger(deadOwner() + ".ledger", "+\tdirectory\tprofile\t" + profile.getParent());
+
+        assertEquals(1, ledger().reapDeadOwners());
+
+        assertFalse(Files.exists(profile.getParent()));
+        assertFalse(ledger.exists());
+    }
+
+    @Test
+    public void crossedOffEntriesAreLeftAlone() throws IOException {
+        String entry = "directory\tprofile\t" + profile.getParent();
+        writeLedger(deadOwner() + ".ledger", "+\t" + entry, "-\t" + entry);
+
+        assertEquals(0, ledger().reapDeadOwners());
+
+        assertTrue(Files.exists(profile));
+    }
+
+    @Test
+    public void killsProcessesADeadOwnerStarted() throws Exception {
+        child = new ProcessBuilder("sleep", "60").start();
+        writeLedger(deadOwner() + ".ledger",
+            "+\tprocess\tdriver\t" + child.pid() + ":" + startMillis(child.toHandle()));
+
+        assertEquals(1, ledger().reapDeadOwners());
+
+        assertTrue(child.waitFor(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void ledgerOfALiveOwnerIsLeftAlone() throws IOException {
+        child = new ProcessBuilder("sleep", "60").start();
+        File ledger = writeLedger(child.pid() + "-" + startMillis(child.toHandle()) + ".ledger",
+            "+\tdirectory\tprofile\t" + profile.getParent());
+
+        assertEquals(0, ledger().reapDeadOwners());
+
+        assertTrue(Files.exists(profile));
+        assertTrue(ledger.exists());
+    }
+
+    @Test
+    public void claimOfADeadClaimantIsReapedAgain() throws IOException {
+        File claimed = writeLedger(deadOwner() + ".ledger.reaping-" + deadOwner(),
+            "+\tdirectory\tprofile\t" + profile.getParent());
+
+        assertEquals(1, ledger().reapDeadOwners());
+
+        assertFalse(Files.exists(profile.getParent()));
+        assertFalse(claimed.exists());
+    }
+
+    @Test
+    public void claimOfALiveClaimantIsLeftAlone() throws IOException {
+        ProcessHandle self = ProcessHandle.current();
+        File claimed = writeLedger(deadOwner() + ".ledger.reaping-" + self.pid() + "-" + startMillis(self),
+            "+\tdirectory\tprofile\t" + profile.getParent());
+
+        assertEquals(0, ledger().reapDeadOwners());
+
+        assertTrue(Files.exists(profile));
+        assertTrue(claimed.exists());
+    }
+
+    private ResourceLedger ledger() {
+        return new ResourceLedger(ledgers, ProcessHandle.current());
+    }
+
+    private File writeLedger(String name, String... lines) throws IOException {
+        File ledger = new File(ledgers, name);
+        Files.write(ledger.toPath(), (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+        return ledger;
+    }
+
+    // This JVM's pid with a start time it never had, which no running process matches
+    private static String deadOwner() {
+        return ProcessHandle.current().pid() + "-1";
+    }
+
+    private static long startMillis(ProcessHandle process) {
+        return process.info().startInstant().map(Instant::toEpochMilli).orElse(0L);
+    }
+}
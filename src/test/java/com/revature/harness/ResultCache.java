@@ -0,0 +1,358 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+
+/**
+ * On-disk cache of per-test grading results.
+ *
+ * Results are keyed by a SHA-256 over the submission's page and the local
+ * files it references (scripts, stylesheets, images), the test class bytecode,
+ * the detected browser and driver versions, the launch profile with its
+ * arguments and blocked URLs, and how the page is served (in memory, over
+ * HTTP or from a file URL). A resubmission that changes none of those gets
+ * its previous outcome and console output back without a browser being
+ * started. A result from a page that fell back to another way of serving is
+ * stored under that way's key. Only passes and assertion failures of tests that
+ * actually ran are stored; setup failures such as a missing browser and
+ * WebDriver errors are never cached.
+ *
+ * Entries are evicted least recently used first once the cache directory
+ * grows past its size limit.
+ *
+ * Configuration (system properties):
+ *   selenium.results.cache       - set to "true" to enable (BatchGrader enables it by default)
+ *   selenium.results.cache.maxMb - size limit of the cache directory (default 64)
+ *   selenium.cache.dir           - parent directory (default ~/.cache/selenium-harness)
+ */
+public class ResultCache {
+    private static final Logger logger = TestDiagnostics.logger(ResultCache.class);
+    private static final Pattern REFERENCE = Pattern.compile(
+        "\\b(?:src|href)\\s*=\\s*[\"']([^\"'#?]+)", Pattern.CASE_INSENSITIVE);
+    private static final String PASSED = "passed";
+    private static final String FAILED = "failed";
+
+    private final File directory;
+    private final long maxBytes;
+
+    ResultCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    static ResultCache fromSystemProperties() {
+        long maxMb = Long.getLong("selenium.results.cache.maxMb", 64L);
+        return new ResultCache(new File(DiscoveryCache.cacheDirectory(), "results"), maxMb * 1024 * 1024);
+    }
+
+    static boolean enabled() {
+        // Read on every use so BatchGrader can switch it on before running the tests
+        return Boolean.parseBoolean(System.getProperty("selenium.results.cache", "false"));
+    }
+
+    /**
+     * Hashes everything a test outcome depends on, or returns null when the
+     * inputs cannot be determined (the results are then not cached).
+     */
+    static String key(File htmlFile, Class<?> testClass, String serveMode) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (File file : servedFiles(htmlFile)) {
+                update(digest, file.getName());
+                if (file.isFile()) {
+                    update(digest, Files.readAllBytes(file.toPath()));
+                }
+            }
+
+            String bytecode = "/" + testClass.getName().replace('.', '/') + ".class";
+            try (InputStream in = testClass.getResourceAsStream(bytecode)) {
+                if (in == null) {
+                    return null;
+                }
+                update(digest, in.readAllBytes());
+            }
+
+            BrowserConfig config = BrowserDiscovery.detect();
+            update(digest, config.browserType + "|" + config.browserVersion + "|" + config.driverVersion
+                + "|" + ScriptTier.ENABLED);
+            LaunchProfile profile = LaunchProfile.fromSystemProperties();
+            update(digest, profile.name() + "|" + profile.windowSize() + "|" + String.join(" ", profile.arguments())
+                + "|" + String.join(" ", profile.blockedUrls()) + "|" + serveMode);
+
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (IOException | RuntimeException | NoSuchAlgorithmException e) {
+            logger.fine(() -> "Results will not be cached: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // The page plus every local file it links to, in document order
+    static Set<File> servedFiles(File htmlFile) throws IOException {
+        File page = htmlFile.getCanonicalFile();
+        Set<File> files = new LinkedHashSet<>();
+        files.add(page);
+        Matcher reference = REFERENCE.matcher(new String(Files.readAllBytes(page.toPath()), StandardCharsets.UTF_8));
+        while (reference.find()) {
+            String target = reference.group(1).trim();
+            if (!target.isEmpty() && !target.matches("(?i)([a-z][a-z0-9+.-]*:|//).*")) {
+                files.add(new File(page.getParentFile(), target).getCanonicalFile());
+            }
+        }
+        return files;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        update(digest, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Length-prefixed so adjacent inputs cannot run into each other
+    private static void update(MessageDigest digest, byte[] value) {
+        digest.update(Integer.toString(value.length).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(value);
+    }
+
+    /**
+     * Returns the stored results for a key, or null on a miss. A hit marks the
+     * entry as recently used.
+     */
+    synchronized Properties load(String key) {
+        File file = entry(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties results = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            results.load(in);
+        } catch (IOException e) {
+            logger.warning("Ignoring unreadable result cache entry: " + e.getMessage());
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return results;
+    }
+
+    synchronized void store(String key, String testId, String status, String message, List<String> console) {
+        Properties results = load(key);
+        if (results == null) {
+            results = new Properties();
+        }
+        results.setProperty(testId + ".status", status);
+        if (message != null) {
+            results.setProperty(testId + ".message", message);
+        } else {
+            results.remove(testId + ".message");
+        }
+        results.setProperty(testId + ".console", String.join("\n", console));
+
+        try {
+            Files.createDirectories(directory.toPath());
+            // Write to a temporary file first so concurrent JVMs never read a partial entry
+            File temp = File.createTempFile("results", ".tmp", directory);
+            try (OutputStream out = new FileOutputStream(temp)) {
+                results.store(out, "Cached grading results");
+            }
+            Files.move(temp.toPath(), entry(key).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("Could not write result cache entry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes least recently used entries until the cache fits its size limit.
+     */
+    synchronized void evict() {
+        File[] entries = directory.listFiles((dir, name) -> name.endsWith(".properties"));
+        if (entries == null) {
+            return;
+        }
+        long total = 0;
+        for (File entry : entries) {
+            total += entry.length();
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        List<File> oldestFirst = new ArrayList<>(Arrays.asList(entries));
+        oldestFirst.sort(Comparator.comparingLong(File::lastModified));
+        int evicted = 0;
+        for (File entry : oldestFirst) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long length = entry.length();
+            if (entry.delete()) {
+                total -= length;
+                evicted++;
+            }
+        }
+        int count = evicted;
+        logger.fine(() -> "Evicted " + count + " result cache entries");
+    }
+
+    private File entry(String key) {
+        return new File(directory, key + ".properties");
+    }
+
+    /**
+     * JUnit extension that answers tests from the cache. On a hit the
+     * @BeforeEach methods and the test body are skipped, the cached console
+     * output is replayed into HarnessMetrics and a cached failure is rethrown.
+     * Register it after HarnessMetrics.Extension and before HarnessExtension,
+     * which then loads no page.
+     */
+    public static class Extension implements BeforeEachCallback, InvocationInterceptor,
+            AfterEachCallback, AfterAllCallback {
+        private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(ResultCache.class);
+        private static final String KEY = "key";
+        private static final String HIT = "hit";
+        private static final String RAN = "ran";
+
+        private final ResultCache cache = fromSystemProperties();
+        private final Supplier<File> htmlFile;
+
+        /**
+         * Locates the page with HarnessExtension, as @SeleniumHarness registers it.
+         */
+        public Extension() {
+            this(HarnessExtension::findHtmlFile);
+        }
+
+        /**
+         * @param htmlFile locates the page of the submission under test
+         */
+        public Extension(Supplier<File> htmlFile) {
+            this.htmlFile = htmlFile;
+        }
+
+        @Override
+        public void beforeEach(ExtensionContext context) {
+            if (!enabled()) {
+                return;
+            }
+            String key;
+            try {
+                key = key(htmlFile.get(), context.getRequiredTestClass(), HarnessExtension.configuredServeMode());
+            } catch (RuntimeException e) {
+                // No page to hash; setup will report the problem
+                return;
+            }
+            if (key == null) {
+                return;
+            }
+            ExtensionContext.Store store = context.getStore(NAMESPACE);
+            store.put(KEY, key);
+            Properties results = cache.load(key);
+            if (results != null && results.getProperty(context.getUniqueId() + ".status") != null) {
+                store.put(HIT, results);
+            }
+        }
+
+        static boolean isHit(ExtensionContext context) {
+            return context.getStore(NAMESPACE).get(HIT) != null;
+        }
+
+        @Override
+        public void interceptBeforeEachMethod(Invocation<Void> invocation,
+                ReflectiveInvocationContext<Method> invocationContext, ExtensionContext context) throws Throwable {
+            if (isHit(context)) {
+                invocation.skip();
+                return;
+            }
+            invocation.proceed();
+        }
+
+        @Override
+        public void interceptTestMethod(Invocation<Void> invocation,
+                ReflectiveInvocationContext<Method> invocationContext, ExtensionContext context) throws Throwable {
+            ExtensionContext.Store store = context.getStore(NAMESPACE);
+            Properties results = store.get(HIT, Properties.class);
+            if (results == null) {
+                store.put(RAN, Boolean.TRUE);
+                invocation.proceed();
+                return;
+            }
+
+            invocation.skip();
+            String testId = context.getUniqueId();
+            logger.info(() -> "Using cached result for " + context.getDisplayName());
+            HarnessMetrics.attribute("cached", "true");
+            String console = results.getProperty(testId + ".console", "");
+            if (!console.isEmpty()) {
+                for (String entry : console.split("\n", -1)) {
+                    HarnessMetrics.consoleEntry(entry);
+                }
+            }
+            if (FAILED.equals(results.getProperty(testId + ".status"))) {
+                throw new AssertionError("(cached result) " + results.getProperty(testId + ".message", ""));
+            }
+        }
+
+        @Override
+        public void afterEach(ExtensionContext context) {
+            ExtensionContext.Store store = context.getStore(NAMESPACE);
+            String key = store.get(KEY, String.class);
+            if (key == null || store.get(RAN) == null) {
+                return;
+            }
+            Throwable failure = context.getExecutionException().orElse(null);
+            if (failure != null && !(failure instanceof AssertionError)) {
+                // A crashed session or a timeout says nothing about the submission
+                return;
+            }
+            String servedMode = HarnessExtension.servedMode(context);
+            if (servedMode != null && !servedMode.equals(HarnessExtension.configuredServeMode())) {
+                // Serving fell back; the result belongs with runs that serve this way
+                try {
+                    key = key(htmlFile.get(), context.getRequiredTestClass(), servedMode);
+                } catch (RuntimeException e) {
+                    return;
+                }
+                if (key == null) {
+                    return;
+                }
+            }
+            cache.store(key, context.getUniqueId(), failure == null ? PASSED : FAILED,
+                failure == null ? null : failure.toString(), HarnessMetrics.consoleEntries());
+        }
+
+        @Override
+        public void afterAll(ExtensionContext context) {
+            if (enabled()) {
+                cache.evict();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ResultCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void storedResultsAreLoadedBack() {
+        ResultCache cache = new ResultCache(directory.toFile(), Long.MAX_VALUE);
+        cache.store("a", "[test:1]", "failed", "expected <1>", Arrays.asList("log one", "log two"));
+
+        Properties results = cache.load("a");
+
+        assertNotNull(results);
+        assertEquals("failed", results.getProperty("[test:1].status"));
+        assertEquals("expected <1>", results.getProperty("[test:1].message"));
+        assertEquals("log one\nlog two", results.getProperty("[test:1].console"));
+        assertNull(cache.load("b"));
+    }
+
+    @Test
+    public void cacheWithinItsLimitIsLeftAlone() throws IOException {
+        ResultCache cache = new ResultCache(directory.toFile(), Long.MAX_VALUE);
+        storeAged(cache, "a", "b", "c");
+
+        cache.evict();
+
+        assertEquals(Arrays.asList("a", "b", "c"), keys());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntriesUntilTheCacheFits() throws IOException {
+        ResultCache unlimited = new ResultCache(directory.toFile(), Long.MAX_VALUE);
+        storeAged(unlimited, "a", "b", "c", "d");
+        ResultCache cache = new ResultCache(directory.toFile(), length("c") + length("d"));
+
+        cache.evict();
+
+        assertEquals(Arrays.asList("c", "d"), keys());
+    }
+
+    @Test
+    public void loadingAnEntryKeepsItFromBeingEvicted() throws IOException {
+        ResultCache unlimited = new ResultCache(directory.toFile(), Long.MAX_VALUE);
+        storeAged(unlimited, "a", "b", "c");
+        ResultCache cache = new ResultCache(directory.toFile(), length("a"));
+
+        assertNotNull(cache.load("a"));
+        cache.evict();
+
+        assertEquals(Collections.singletonList("a"), keys());
+    }
+
+    // Stores the entries with modification times a minute apart, oldest first
+    private void storeAged(ResultCache cache, String... keys) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < keys.length; i++) {
+            cache.store(keys[i], "[test:1]", "passed", null, Collections.singletonList("log"));
+            entry(keys[i]).setLastModified(now - (keys.length - i) * 60_000L);
+        }
+    }
+
+    private long length(String key) {
+        return entry(key).length();
+    }
+
+    private File entry(String key) {
+        return directory.resolve(key + ".properties").toFile();
+    }
+
+    private List<String> keys() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                .filter(name -> name.endsWith(".properties"))
+                .map(name -> name.substring(0, name.length() - ".properties".length()))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.EvaluatorException;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.openqa.selenium.TimeoutException;
+
+/**
+ * Browser-free evaluation of a page's scripts for logic-only checks.
+ *
+ * The page's scripts run in an embedded JavaScript engine (Mozilla Rhino)
+ * against a minimal DOM shim: document.getElementById() and
+ * querySelector("#id") for elements that have an id in the HTML, their
+ * innerText/textContent/innerHTML and value, event listeners (load and
+ * DOMContentLoaded fire after the scripts, other events never do),
+ * setTimeout, and console.log. That is all the array-method labs touch, and
+ * a run takes milliseconds instead of a browser launch. Tests that need
+ * rendering stay on the browser tier; see GradingTier.
+ *
+ * Only a syntax error or a missing script is a conclusive failure. An error
+ * while the scripts run may just be a browser feature the shim lacks, so such
+ * a result is inconclusive and the SCRIPT tests run in the browser instead.
+ *
+ * The most recent results are cached per page until the HTML or one of its
+ * scripts changes.
+ *
+ * Configuration (system properties):
+ *   selenium.tier.script         - set to "false" to run SCRIPT-tier tests in the browser
+ *   selenium.tier.script.timeout - time budget per evaluation in ms (default 5000)
+ */
+public final class ScriptTier {
+    private static final Logger logger = TestDiagnostics.logger(ScriptTier.class);
+    public static final boolean ENABLED =
+        Boolean.parseBoolean(System.getProperty("selenium.tier.script", "true"));
+    private static final long TIMEOUT_MILLIS = Long.getLong("selenium.tier.script.timeout", 5000L);
+
+    private static final int CACHE_SIZE = 64;
+
+    // Start and end tags, with quoted attribute values that may contain '>'
+    private static final Pattern TAG = Pattern.compile(
+        "<(/?)([a-zA-Z][\\w-]*)((?:[^>\"']|\"[^\"]*\"|'[^']*')*)>", Pattern.DOTALL);
+    private static final Pattern COMMENT = Pattern.compile("<!--.*?-->", Pattern.DOTALL);
+    private static final Pattern RAW_TEXT = Pattern.compile(
+        "<(script|style)\\b[^>]*>.*?</\\1\\s*>", Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+    private static final Set<String> VOID_ELEMENTS = new HashSet<>(Arrays.asList(
+        "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "source", "track", "wbr"));
+    // Elements whose start tag ends an open sibling of the same name, e.g. <li>one<li>two
+    private static final Set<String> SELF_ENDING_ELEMENTS = new HashSet<>(Arrays.asList(
+        "dd", "dt", "li", "option", "p", "td", "th", "tr"));
+    private static final Pattern SCRIPT_TAG = Pattern.compile(
+        "<script\\b([^>]*)>(.*?)</script\\s*>", Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+    private static final Pattern SRC_ATTRIBUTE = Pattern.compile(
+        "\\bsrc\\s*=\\s*[\"']([^\"']+)[\"']", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ID_ATTRIBUTE = attribute("id");
+    private static final Pattern VALUE_ATTRIBUTE = attribute("value");
+
+    // Just enough of the browser for scripts that read and write element text and log
+    private static final String DOM_SHIM =
+        "var __elements = {};" +
+        "var __console = [];" +
+        "var __loadListeners = [];" +
+        "var __timers = [];" +
+        "function __Element(id, text, value) {" +
+        "  this.id = id; this.__text = text; this.value = value; this.style = {}; this.__listeners = {};" +
+        "}" +
+        "var __textProperty = {" +
+        "  get: function() { return this.__text; }," +
+        "  set: function(value) { this.__text = value === null ? '' : String(value); }" +
+        "};" +
+        "Object.defineProperty(__Element.prototype, 'innerText', __textProperty);" +
+        "Object.defineProperty(__Element.prototype, 'textContent', __textProperty);" +
+        "Object.defineProperty(__Element.prototype, 'innerHTML', {" +
+        "  get: function() { return this.__text; }," +
+        "  set: function(value) { this.__text = value === null ? '' : String(value).replace(/<[^>]*>/g, ''); }" +
+        "});" +
+        "__Element.prototype.addEventListener = function(type, listener) {" +
+        "  (this.__listeners[type] = this.__listeners[type] || []).push(listener);" +
+        "};" +
+        "__Element.prototype.removeEventListener = function() {};" +
+        "function __define(id, text, value) { __elements[id] = new __Element(id, text, value); }" +
+        "function __byId(id) {" +
+        "  return Object.prototype.hasOwnProperty.call(__elements, id) ? __elements[id] : null;" +
+        "}" +
+        "function __select(selector) {" +
+        "  var id = /^\\s*#([\\w-]+)\\s*$/.exec(String(selector));" +
+        "  if (!id) { throw new TypeError('The script tier only supports #id selectors: ' + selector); }" +
+        "  return __byId(id[1]);" +
+        "}" +
+        "function addEventListener(type, listener) {" +
+        "  if (type === 'load' || type === 'DOMContentLoaded') { __loadListeners.push(listener); }" +
+        "}" +
+        "function removeEventListener() {}" +
+        "function setTimeout(callback, delay) {" +
+        "  var args = Array.prototype.slice.call(arguments, 2);" +
+        "  __timers.push({ callback: callback, delay: delay || 0, args: args, order: __timers.length });" +
+        "  return __timers.length;" +
+        "}" +
+        "function clearTimeout(handle) { if (__timers[handle - 1]) { __timers[handle - 1].callback = null; } }" +
+        // Load listeners, then timers by delay; timers started by timers run too, up to a limit
+        "function __settle() {" +
+        "  __loadListeners.forEach(function(listener) { listener.call(window, { type: 'load' }); });" +
+        "  for (var ran = 0, next = 0; next < __timers.length && ran < 1000; ran++) {" +
+        "    var pending = __timers.slice(next).sort(function(a, b) { return a.delay - b.delay || a.order - b.order; });" +
+        "    var timer = pending[0];" +
+        "    __timers.splice(__timers.indexOf(timer), 1);" +
+        "    __timers.splice(next++, 0, timer);" +
+        "    if (typeof timer.callback === 'function') { timer.callback.apply(window, timer.args); }" +
+        "  }" +
+        "}" +
+        "var document = {" +
+        "  getElementById: __byId," +
+        "  querySelector: __select," +
+        "  querySelectorAll: function(selector) { var element = __select(selector); return element ? [element] : []; }," +
+        "  addEventListener: addEventListener," +
+        "  removeEventListener: removeEventListener" +
+        "};" +
+        "var console = {" +
+        "  log: function() { __console.push(Array.prototype.map.call(arguments, String).join(' ')); }" +
+        "};" +
+        "console.info = console.warn = console.error = console.debug = console.log;" +
+        "var window = this;";
+
+    private static final ContextFactory ENGINE = new ContextFactory() {
+        @Override
+        protected Context makeContext() {
+            Context context = super.makeContext();
+            context.setLanguageVersion(Context.VERSION_ES6);
+            // Interpreted mode: no class generation for one-off scripts, and instruction counting works
+            context.setOptimizationLevel(-1);
+            context.setInstructionObserverThreshold(10_000);
+            return context;
+        }
+
+        @Override
+        protected void observeInstructionCount(Context context, int instructionCount) {
+            Long deadline = (Long) context.getThreadLocal(Deadline.class);
+            if (deadline != null && System.nanoTime() > deadline) {
+                throw new Deadline();
+            }
+        }
+    };
+
+    // Most recently used results by page path; BatchGrader grades a cohort in one JVM
+    private static final Map<String, Result> CACHE = Collections.synchronizedMap(
+        new LinkedHashMap<String, Result>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        });
+
+    private ScriptTier() {
+    }
+
+    /**
+     * Runs the scripts of a page and returns the resulting element text and
+     * console output. Script errors are reported in the result, not thrown.
+     */
+    public static Result evaluate(File htmlFile) throws IOException {
+        File page = htmlFile.getCanonicalFile();
+        Result cached = CACHE.get(page.getPath());
+        if (cached != null && cached.isCurrent()) {
+            logger.fine(() -> "Script tier result for " + page + " is cached");
+            return cached;
+        }
+
+        long start = System.nanoTime();
+        Result result = run(page);
+        CACHE.put(page.getPath(), result);
+        logger.fine(() -> "Evaluated " + page.getName() + " in the script tier in "
+            + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return result;
+    }
+
+    private static Result run(File page) throws IOException {
+        String html = new String(Files.readAllBytes(page.toPath()), StandardCharsets.UTF_8);
+        Map<File, Long> sources = new LinkedHashMap<>();
+        sources.put(page, page.lastModified());
+
+        Context context = ENGINE.enterContext();
+        try {
+            Scriptable scope = context.initStandardObjects();
+            context.evaluateString(scope, DOM_SHIM, "dom-shim", 1, null);
+
+            Function define = (Function) scope.get("__define", scope);
+            for (Map.Entry<String, String[]> element : elementsWithId(html).entrySet()) {
+                define.call(context, scope, scope, new Object[] {
+                    element.getKey(), element.getValue()[0], element.getValue()[1] });
+            }
+
+            Failure error = null;
+            context.putThreadLocal(Deadline.class, System.nanoTime() + TIMEOUT_MILLIS * 1_000_000);
+            Matcher script = SCRIPT_TAG.matcher(html);
+            while (error == null && script.find()) {
+                Matcher src = SRC_ATTRIBUTE.matcher(script.group(1));
+                String name;
+                String code;
+                if (src.find()) {
+                    if (src.group(1).matches("(?i)(https?:)?//.*")) {
+                        logger.fine(() -> "Script tier skips remote script " + src.group(1));
+                        continue;
+                    }
+                    File file = new File(page.getParentFile(), src.group(1));
+                    sources.put(file, file.lastModified());
+                    if (!file.isFile()) {
+                        error = new Failure("Script not found: " + src.group(1), false);
+                        break;
+                    }
+                    name = file.getName();
+                    code = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                } else {
+                    name = page.getName();
+                    code = script.group(2);
+                }
+                error = execute(context, scope, name, code);
+            }
+            if (error == null) {
+                error = execute(context, scope, "load and timer callbacks", "__settle();");
+            }
+            context.removeThreadLocal(Deadline.class);
+
+            return new Result(sources, readElements(scope), readConsole(scope),
+                error == null ? null : error.message, error != null && error.inconclusive);
+        } finally {
+            Context.exit();
+        }
+    }
+
+    private static Failure execute(Context context, Scriptable scope, String name, String code) {
+        try {
+            context.evaluateString(scope, code, name, 1, null);
+            return null;
+        } catch (EvaluatorException e) {
+            // A syntax error fails the same way in every browser
+            return new Failure("SyntaxError: " + e.details() + " (" + name + ":" + e.lineNumber() + ")", false);
+        } catch (RhinoException e) {
+            // details() carries the JavaScript error type, e.g. "TypeError: Cannot call method ..."
+            return new Failure(e.details() + " (" + name + ":" + e.lineNumber() + ")", true);
+        } catch (Deadline e) {
+            // Interpreted scripts are much slower than a browser's
+            return new Failure(name + " did not finish within " + TIMEOUT_MILLIS + " ms", true);
+        }
+    }
+
+    /**
+     * Initial text and value attribute of every element with an id, by id.
+     * Tolerates what browsers tolerate: any case, void and self-closing
+     * elements, and end tags left out (an element ends with its parent).
+     */
+    static Map<String, String[]> elementsWithId(String html) {
+        String markup = COMMENT.matcher(html).replaceAll("");
+        String lowerCase = markup.toLowerCase(Locale.ROOT);
+        Map<String, String[]> elements = new LinkedHashMap<>();
+        Deque<OpenElement> open = new ArrayDeque<>();
+        Matcher tag = TAG.matcher(markup);
+        int from = 0;
+        while (from < markup.length() && tag.find(from)) {
+            from = tag.end();
+            String name = tag.group(2).toLowerCase(Locale.ROOT);
+            if (!tag.group(1).isEmpty()) {
+                boolean matched = open.stream().anyMatch(element -> element.name.equals(name));
+                while (matched && !open.isEmpty()) {
+                    OpenElement element = open.pop();
+                    element.close(elements, markup.substring(element.contentStart, tag.start()));
+                    if (element.name.equals(name)) {
+                        break;
+                    }
+                }
+                continue;
+            }
+            if (SELF_ENDING_ELEMENTS.contains(name) && !open.isEmpty() && open.peek().name.equals(name)) {
+                OpenElement sibling = open.pop();
+                sibling.close(elements, markup.substring(sibling.contentStart, tag.start()));
+            }
+            String attributes = tag.group(3);
+            String id = attributeValue(ID_ATTRIBUTE, attributes);
+            // The first element with an id is the one getElementById() finds
+            boolean owner = id != null && !elements.containsKey(id);
+            if (owner) {
+                elements.put(id, new String[] { "", attributeValue(VALUE_ATTRIBUTE, attributes) });
+            }
+            if (name.equals("script") || name.equals("style")) {
+                // Raw text: skip to the end tag, and keep no text
+                int end = lowerCase.indexOf("</" + name, from);
+                from = end < 0 ? markup.length() : end;
+                open.push(new OpenElement(name, null, from));
+            } else if (!VOID_ELEMENTS.contains(name) && !attributes.trim().endsWith("/")) {
+                open.push(new OpenElement(name, owner ? id : null, from));
+            }
+        }
+        while (!open.isEmpty()) {
+            OpenElement element = open.pop();
+            element.close(elements, markup.substring(Math.min(element.contentStart, markup.length())));
+        }
+        return elements;
+    }
+
+    private static Pattern attribute(String name) {
+        return Pattern.compile("(?:^|\\s)" + name + "\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+))",
+            Pattern.CASE_INSENSITIVE);
+    }
+
+    private static String attributeValue(Pattern attribute, String attributes) {
+        Matcher matcher = attribute.matcher(attributes);
+        if (!matcher.find()) {
+            return null;
+        }
+        for (int group = 1; group <= 3; group++) {
+            if (matcher.group(group) != null) {
+                return matcher.group(group);
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, String> readElements(Scriptable scope) {
+        Scriptable elements = (Scriptable) scope.get("__elements", scope);
+        Map<String, String> texts = new LinkedHashMap<>();
+        for (Object id : elements.getIds()) {
+            Scriptable element = (Scriptable) elements.get(id.toString(), elements);
+            texts.put(id.toString(), Context.toString(ScriptableObject.getProperty(element, "innerText")));
+        }
+        return texts;
+    }
+
+    private static List<String> readConsole(Scriptable scope) {
+        NativeArray console = (NativeArray) scope.get("__console", scope);
+        List<String> entries = new ArrayList<>();
+        for (Object entry : console) {
+            entries.add(Context.toString(entry));
+        }
+        return entries;
+    }
+
+    // Initial innerText of an element: its markup without tags, with whitespace collapsed
+    private static String textOf(String markup) {
+        return RAW_TEXT.matcher(markup).replaceAll("")
+            .replaceAll("<[^>]*>", "")
+            .replace("&nbsp;", " ")
+            .replace("&lt;", "<")
+            .replace("&gt;", ">")
+            .replace("&quot;", "\"")
+            .replace("&#39;", "'")
+            .replace("&amp;", "&")
+            .replaceAll("\\s+", " ")
+            .trim();
+    }
+
+    private static final class OpenElement {
+        final String name;
+        // Set when this element is the one its id refers to
+        final String id;
+        final int contentStart;
+
+        OpenElement(String name, String id, int contentStart) {
+            this.name = name;
+            this.id = id;
+            this.contentStart = contentStart;
+        }
+
+        void close(Map<String, String[]> elements, String content) {
+            if (id != null) {
+                elements.get(id)[0] = textOf(content);
+            }
+        }
+    }
+
+    private static final class Failure {
+        final String message;
+        // True when a browser might well have run the scripts without the error
+        final boolean inconclusive;
+
+        Failure(String message, boolean inconclusive) {
+            this.message = message;
+            this.inconclusive = inconclusive;
+        }
+    }
+
+    // Thrown from the instruction observer to stop a script that runs too long
+    private static final class Deadline extends Error {
+        Deadline() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Element text and console output after a page's scripts have run.
+     */
+    public static final class Result {
+        private final Map<File, Long> sources;
+        private final Map<String, String> texts;
+        private final List<String> consoleEntries;
+        private final String error;
+        private final boolean inconclusive;
+
+        Result(Map<File, Long> sources, Map<String, String> texts, List<String> consoleEntries, String error,
+                boolean inconclusive) {
+            this.sources = sources;
+            this.texts = Collections.unmodifiableMap(texts);
+            this.consoleEntries = Collections.unmodifiableList(consoleEntries);
+            this.error = error;
+            this.inconclusive = inconclusive;
+        }
+
+        private boolean isCurrent() {
+            for (Map.Entry<File, Long> source : sources.entrySet()) {
+                if (source.getKey().lastModified() != source.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public boolean failed() {
+            return error != null;
+        }
+
+        /**
+         * True when the scripts failed in a way that may be down to the shim,
+         * so only a browser can tell whether the page works.
+         */
+        public boolean inconclusive() {
+            return inconclusive;
+        }
+
+        /**
+         * The first script error, or null when every script ran to completion.
+         */
+        public String error() {
+            return error;
+        }
+
+        /**
+         * Text of the given elements, with null for ids that are not in the page.
+         */
+        public DomSnapshot snapshot(List<String> ids) {
+            Map<String, String> selected = new LinkedHashMap<>();
+            for (String id : ids) {
+                selected.put(id, texts.get(id));
+            }
+            return DomSnapshot.of(selected);
+        }
+
+        /**
+         * Text of the given elements. Scripts have already finished, so an
+         * element without text fails at once instead of being waited for.
+         */
+        public Map<String, String> requireText(List<String> ids) {
+            Map<String, String> selected = new LinkedHashMap<>();
+            for (String id : ids) {
+                String text = texts.get(id);
+                if (text == null || text.isEmpty()) {
+                    throw new TimeoutException("Element '" + id + "' has no text after the scripts ran");
+                }
+                selected.put(id, text);
+            }
+            return selected;
+        }
+
+        public List<String> consoleEntries() {
+            return consoleEntries;
+        }
+
+        /**
+         * Console output, failing at once if the scripts logged fewer than count entries.
+         */
+        public List<String> requireConsoleEntries(int count) {
+            if (consoleEntries.size() < count) {
+                throw new TimeoutException("Expected " + count + " console entries but the scripts logged "
+                    + consoleEntries.size());
+            }
+            return consoleEntries;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openqa.selenium.TimeoutException;
+
+public class ScriptTierTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void scriptsWriteElementTextAndLog() throws IOException {
+        ScriptTier.Result result = evaluate(
+            "<p id=\"sum\"></p><input id=\"count\" value=\"3\">",
+            "<script>",
+            "var total = [1, 2, 3].reduce(function (a, b) { return a + b; }, 0);",
+            "document.getElementById('sum').innerText = 'Sum: ' + total;",
+            "console.log('count', document.querySelector('#count').value);",
+            "</script>");
+
+        assertFalse(result.failed(), result.error());
+        assertEquals(Collections.singletonMap("sum", "Sum: 6"), result.requireText(Arrays.asList("sum")));
+        assertEquals(Arrays.asList("count 3"), result.consoleEntries());
+    }
+
+    @Test
+    public void loadListenersRunAfterTheScriptsAndTimersAfterThem() throws IOException {
+        ScriptTier.Result result = evaluate(
+            "<div id=\"out\">start</div>",
+            "<script>",
+            "var out = document.getElementById('out');",
+            "setTimeout(function () { out.textContent += ' late'; }, 50);",
+            "setTimeout(function () { out.textContent += ' soon'; }, 0);",
+            "window.addEventListener('load', function () { out.textContent += ' load'; });",
+            "out.textContent += ' script';",
+            "</script>");
+
+        assertEquals("start script load soon late", result.requireText(Arrays.asList("out")).get("out"));
+    }
+
+    @Test
+    public void externalScriptsRunInDocumentOrder() throws IOException {
+        Files.write(directory.resolve("app.js"),
+            "document.getElementById('out').innerHTML = '<b>' + greeting + '</b>';".getBytes(StandardCharsets.UTF_8));
+
+        ScriptTier.Result result = evaluate(
+            "<span id=\"out\"></span>",
+            "<script>var greeting = 'hello';</script>",
+            "<script src=\"app.js\"></script>");
+
+        assertEquals("hello", result.requireText(Arrays.asList("out")).get("out"));
+    }
+
+    @Test
+    public void syntaxErrorIsConclusive() throws IOException {
+        ScriptTier.Result result = evaluate("<p id=\"out\"></p>", "<script>var = ;</script>");
+
+        assertTrue(result.failed());
+        assertFalse(result.inconclusive());
+        assertTrue(result.error().startsWith("SyntaxError"), result.error());
+    }
+
+    @Test
+    public void missingScriptIsConclusive() throws IOException {
+        ScriptTier.Result result = evaluate("<script src=\"missing.js\"></script>");
+
+        assertTrue(result.failed());
+        assertFalse(result.inconclusive());
+    }
+
+    @Test
+    public void runtimeErrorIsInconclusive() throws IOException {
+        // The shim has no createElement, which a browser would have
+        ScriptTier.Result result = evaluate("<ul id=\"list\"></ul>",
+            "<script>document.getElementById('list').appendChild(document.createElement('li'));</script>");
+
+        assertTrue(result.failed());
+        assertTrue(result.inconclusive());
+        assertTrue(result.error().contains("TypeError"), result.error());
+    }
+
+    @Test
+    public void unsupportedSelectorIsInconclusive() throws IOException {
+        ScriptTier.Result result = evaluate("<p class=\"out\"></p>",
+            "<script>document.querySelector('.out').innerText = 'x';</script>");
+
+        assertTrue(result.inconclusive());
+    }
+
+    @Test
+    public void missingTextFailsAtOnce() throws IOException {
+        ScriptTier.Result result = evaluate("<p id=\"empty\"></p>", "<script>console.log('one');</script>");
+
+        assertThrows(TimeoutException.class, () -> result.requireText(Arrays.asList("empty")));
+        assertThrows(TimeoutException.class, () -> result.requireConsoleEntries(2));
+        assertEquals(Arrays.asList("one"), result.requireConsoleEntries(1));
+    }
+
+    @Test
+    public void resultIsCachedUntilThePageChanges() throws IOException {
+        File page = write("<p id=\"out\"></p>", "<script>console.log('run');</script>");
+
+        ScriptTier.Result first = ScriptTier.evaluate(page);
+        assertSame(first, ScriptTier.evaluate(page));
+
+        assertTrue(page.setLastModified(page.lastModified() - 10_000));
+        assertNotSame(first, ScriptTier.evaluate(page));
+    }
+
+    @Test
+    public void elementsWithIdToleratesBrowserMarkup() {
+        Map<String, String[]> elements = ScriptTier.elementsWithId(
+            "<!-- <p id=\"commented\">x</p> -->"
+            + "<UL><LI ID=\"first\">one<li id=\"second\">two</UL>"
+            + "<p id=\"para\">text<br><img id=\"pic\" src=\"a.png\"/> more"
+            + "<p id=\"para\">duplicate</p>"
+            + "<input id=\"name\" value='Ada'>"
+            + "<script>var s = '<p id=\"inScript\">';</script>");
+
+        assertArrayEquals(new String[] { "one", null }, elements.get("first"));
+        assertArrayEquals(new String[] { "two", null }, elements.get("second"));
+        assertEquals("text more", elements.get("para")[0]);
+        assertEquals("Ada", elements.get("name")[1]);
+        assertTrue(elements.containsKey("pic"));
+        assertFalse(elements.containsKey("commented"));
+        assertFalse(elements.containsKey("inScript"));
+    }
+
+    private ScriptTier.Result evaluate(String... lines) throws IOException {
+        return ScriptTier.evaluate(write(lines));
+    }
+
+    private File write(String... lines) throws IOException {
+        Path page = Files.createTempFile(directory, "page", ".html");
+        Files.write(page, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        return page.toFile();
+    }
+}
@@ -0,0 +1,35 @@
+package com.revature.harness;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Puts a test class under the harness: diagnostics, metrics, tier gating, the
+ * result cache and HarnessExtension, registered in the order they depend on,
+ * with script-tier tests ordered first.
+ *
+ * A lab's test class only needs this annotation and parameters of the types
+ * HarnessExtension resolves; no setup or teardown code is copied between labs.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@ExtendWith({
+    TestDiagnostics.Extension.class,
+    HarnessMetrics.Extension.class,
+    TierExtension.class,
+    ResultCache.Extension.class,
+    HarnessExtension.class
+})
+@TestMethodOrder(TierExtension.Orderer.class)
+public @interface SeleniumHarness {
+    /**
+     * How long a browser session is kept; selenium.scope overrides it.
+     */
+    HarnessExtension.Scope scope() default HarnessExtension.Scope.METHOD;
+}
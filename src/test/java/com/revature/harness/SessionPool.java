@@ -0,0 +1,198 @@
+package com.revature.harness;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Pool of browser sessions shared by every test in the JVM.
+ *
+ * Starting ChromeDriver/EdgeDriver and a headless browser is the most expensive
+ * part of a test, so sessions are created on demand, handed out with lease() and
+ * handed back with release(). A released session is health checked and reset
+ * (cookies, web storage and DOM cleared) before the next test gets it. Sessions
+ * that fail the health check or the reset, or whose renderer has grown past
+ * the AdmissionControl RSS limit, are quit and replaced.
+ *
+ * Configuration (system properties):
+ *   selenium.pool.size  - maximum number of live sessions (default 1)
+ *   selenium.pool.scope - "jvm" keeps sessions until the JVM exits,
+ *                         "class" quits them after each test class (default jvm)
+ *
+ * selenium.pool.scope only decides what happens to idle sessions, those
+ * already released. How long a test keeps its lease is HarnessExtension's
+ * selenium.scope, which wins where the two disagree: a session leased for the
+ * whole suite is not idle when a class ends, so "class" does not quit it.
+ */
+public class SessionPool {
+    private static final Logger logger = TestDiagnostics.logger(SessionPool.class);
+
+    public static final String SCOPE_JVM = "jvm";
+    public static final String SCOPE_CLASS = "class";
+
+    private final int maxSize;
+    private final String scope;
+    private final Semaphore permits;
+    private final Deque<WebDriver> idle = new ArrayDeque<>();
+    private int created;
+
+    SessionPool(int maxSize, String scope) {
+        this.maxSize = Math.max(1, maxSize);
+        this.scope = scope;
+        this.permits = new Semaphore(this.maxSize, true);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "session-pool-shutdown"));
+    }
+
+    public static SessionPool fromSystemProperties() {
+        int size = Integer.getInteger("selenium.pool.size", 1);
+        String scope = System.getProperty("selenium.pool.scope", SCOPE_JVM).toLowerCase();
+        return new SessionPool(size, scope);
+    }
+
+    public String scope() {
+        return scope;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Leases a healthy session, creating one with the factory if no idle session
+     * is available. Blocks while all sessions are leased.
+     */
+    public WebDriver lease(Supplier<WebDriver> factory) throws InterruptedException {
+        permits.acquire();
+        try {
+            WebDriver session;
+            while ((session = pollIdle()) != null) {
+                if (isHealthy(session)) {
+                    logger.fine("Reusing pooled browser session");
+                    return session;
+                }
+                logger.info("Discarding unhealthy pooled browser session");
+                quitQuietly(session);
+            }
+
+            session = factory.get();
+            int total;
+            synchronized (this) {
+                total = ++created;
+            }
+            logger.info("Created browser session (" + total + " created so far)");
+            return session;
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a session to the pool. The session is reset so the next lease
+     * starts from a blank page; if the reset fails the session is quit instead.
+     */
+    public void release(WebDriver session) {
+        if (session == null) {
+            return;
+        }
+        try {
+            if (AdmissionControl.shared().rendererOverLimit(session)) {
+                logger.info("Replacing browser session whose renderer uses too much memory");
+                quitQuietly(session);
+            } else if (reset(session)) {
+                // The next lease may load its page over HTTP, which interception would block
+                InMemoryAssets.release(session);
+                synchronized (this) {
+                    idle.push(session);
+                }
+            } else {
+                logger.warning("Browser session could not be reset, quitting it");
+                quitQuietly(session);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Quits a leased session without returning it to the pool.
+     */
+    public void discard(WebDriver session) {
+        if (session == null) {
+            return;
+        }
+        try {
+            quitQuietly(session);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Quits every idle session. Leased sessions are quit when they are released
+     * or discarded.
+     */
+    public void drain() {
+        while (true) {
+            WebDriver session = pollIdle();
+            if (session == null) {
+                return;
+            }
+            quitQuietly(session);
+        }
+    }
+
+    public synchronized int idleCount() {
+        return idle.size();
+    }
+
+    private synchronized WebDriver pollIdle() {
+        return idle.poll();
+    }
+
+    private boolean isHealthy(WebDriver session) {
+        try {
+            return !session.getWindowHandles().isEmpty();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean reset(WebDriver session) {
+        try {
+            String url = session.getCurrentUrl();
+            if (url != null && (url.startsWith("http://") || url.startsWith("https://"))) {
+                ((JavascriptExecutor) session).executeScript(
+                    "try { window.localStorage.clear(); } catch (e) {}" +
+                    "try { window.sessionStorage.clear(); } catch (e) {}");
+            }
+            session.manage().deleteAllCookies();
+            session.get("about:blank");
+            return true;
+        } catch (Exception e) {
+            logger.warning("Error resetting browser session: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void quitQuietly(WebDriver session) {
+        ConsoleCapture.release(session);
+        InMemoryAssets.release(session);
+        try {
+            session.quit();
+        } catch (Exception e) {
+            logger.warning("Error cleaning up WebDriver: " + e.getMessage());
+            // An unresponsive browser does not exit on quit; make sure it is gone
+            File profile = BrowserProfiles.profileOf(session);
+            if (profile != null) {
+                BrowserProcesses.destroy(profile);
+            }
+        }
+        BrowserProfiles.release(session);
+    }
+}
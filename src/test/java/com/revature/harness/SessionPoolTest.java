@@ -0,0 +1,205 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+public class SessionPoolTest {
+    private final AtomicInteger created = new AtomicInteger();
+
+    @Test
+    public void releasedSessionIsLeasedAgain() throws InterruptedException {
+        SessionPool pool = new SessionPool(1, SessionPool.SCOPE_JVM);
+        FakeBrowser browser = new FakeBrowser("about:blank");
+
+        WebDriver session = pool.lease(browser::driver);
+        pool.release(session);
+
+        assertEquals(1, pool.idleCount());
+        assertSame(session, pool.lease(this::unexpected));
+        assertEquals(0, pool.idleCount());
+    }
+
+    @Test
+    public void releaseClearsCookiesStorageAndThePage() throws InterruptedException {
+        SessionPool pool = new SessionPool(1, SessionPool.SCOPE_JVM);
+        FakeBrowser browser = new FakeBrowser("http://127.0.0.1:8080/0/src/main/index.html");
+
+        pool.release(pool.lease(browser::driver));
+
+        assertTrue(browser.calls.contains("deleteAllCookies"), browser.calls.toString());
+        assertTrue(browser.calls.contains("executeScript"), browser.calls.toString());
+        assertEquals("about:blank", browser.url);
+        assertFalse(browser.calls.contains("quit"));
+    }
+
+    @Test
+    public void storageOfOtherPagesIsLeftAlone() throws InterruptedException {
+        SessionPool pool = new SessionPool(1, SessionPool.SCOPE_JVM);
+        // Scripts cannot reach storage on about: or data: pages
+        FakeBrowser browser = new FakeBrowser("data:text/html,<p>");
+
+        pool.release(pool.lease(browser::driver));
+
+        assertFalse(browser.calls.contains("executeScript"), browser.calls.toString());
+        assertEquals(1, pool.idleCount());
+    }
+
+    @Test
+    public void sessionThatCannotBeResetIsQuit() throws InterruptedException {
+        SessionPool pool = new SessionPool(1, SessionPool.SCOPE_JVM);
+        FakeBrowser browser = new FakeBrowser("about:blank");
+        browser.failing = "deleteAllCookies";
+
+        pool.release(pool.lease(browser::driver));
+
+        assertTrue(browser.calls.contains("quit"));
+        assertEquals(0, pool.idleCount());
+        // The permit came back with the failed session
+        assertNotSame(browser.driver(), pool.lease(new FakeBrowser("about:blank")::driver));
+    }
+
+    @Test
+    public void unhealthyIdleSessionIsReplaced() throws InterruptedException {
+        SessionPool pool = new SessionPool(1, SessionPool.SCOPE_JVM);
+        FakeBrowser crashed = new FakeBrowser("about:blank");
+        pool.release(pool.lease(crashed::driver));
+        crashed.failing = "getWindowHandles";
+        FakeBrowser replacement = new FakeBrowser("about:blank");
+
+        assertSame(replacement.driver(), pool.lease(replacement::driver));
+        assertTrue(crashed.calls.contains("quit"));
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    public void leaseWaitsWhileEverySessionIsLeased() throws Exception {
+        SessionPool pool = new SessionPool(1, SessionPool.SCOPE_JVM);
+        WebDriver first = pool.lease(new FakeBrowser("about:blank")::driver);
+        ExecutorService threads = Executors.newSingleThreadExecutor();
+        try {
+            Future<WebDriver> second = threads.submit(() -> pool.lease(this::unexpected));
+            Thread.sleep(100);
+            assertFalse(second.isDone());
+
+            pool.release(first);
+
+            assertSame(first, second.get(5, TimeUnit.SECONDS));
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void discardQuitsTheSessionAndFreesItsPermit() throws InterruptedException {
+        SessionPool pool = new SessionPool(1, SessionPool.SCOPE_JVM);
+        FakeBrowser browser = new FakeBrowser("about:blank");
+
+        pool.discard(pool.lease(browser::driver));
+
+        assertTrue(browser.calls.contains("quit"));
+        assertEquals(0, pool.idleCount());
+        FakeBrowser next = new FakeBrowser("about:blank");
+        assertSame(next.driver(), pool.lease(next::driver));
+    }
+
+    @Test
+    public void failedStartFreesItsPermit() throws InterruptedException {
+        SessionPool pool = new SessionPool(1, SessionPool.SCOPE_JVM);
+
+        assertThrows(WebDriverException.class, () -> pool.lease(() -> {
+            throw new WebDriverException("session not created");
+        }));
+
+        FakeBrowser browser = new FakeBrowser("about:blank");
+        assertSame(browser.driver(), pool.lease(browser::driver));
+    }
+
+    @Test
+    public void drainQuitsIdleSessions() throws InterruptedException {
+        SessionPool pool = new SessionPool(2, SessionPool.SCOPE_CLASS);
+        FakeBrowser browser = new FakeBrowser("about:blank");
+        pool.release(pool.lease(browser::driver));
+
+        pool.drain();
+
+        assertTrue(browser.calls.contains("quit"));
+        assertEquals(0, pool.idleCount());
+    }
+
+    private WebDriver unexpected() {
+        throw new AssertionError("An idle session should have been reused");
+    }
+
+    // Records the calls the pool makes; the method named by failing throws
+    private final class FakeBrowser {
+        final List<String> calls = new CopyOnWriteArrayList<>();
+        volatile String failing;
+        volatile String url;
+        private WebDriver driver;
+
+        FakeBrowser(String url) {
+            this.url = url;
+        }
+
+        synchronized WebDriver driver() {
+            if (driver == null) {
+                created.incrementAndGet();
+                Object options = proxy(null, WebDriver.Options.class);
+                driver = (WebDriver) proxy(options, WebDriver.class, JavascriptExecutor.class);
+            }
+            return driver;
+        }
+
+        private Object proxy(Object options, Class<?>... interfaces) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), interfaces,
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    switch (name) {
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "FakeBrowser";
+                        default:
+                            break;
+                    }
+                    calls.add(name);
+                    if (name.equals(failing)) {
+                        throw new WebDriverException(name + " failed");
+                    }
+                    switch (name) {
+                        case "manage":
+                            return options;
+                        case "getCurrentUrl":
+                            return url;
+                        case "get":
+                            url = (String) args[0];
+                            return null;
+                        case "getWindowHandles":
+                            return Collections.singleton("tab");
+                        default:
+                            return null;
+                    }
+                });
+        }
+    }
+}
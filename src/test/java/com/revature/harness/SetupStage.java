@@ -0,0 +1,118 @@
+package com.revature.harness;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One asynchronous step of test setup.
+ *
+ * Stages run on a shared pool of daemon threads and log to the buffer, and
+ * record metrics for, the test that started them. Cancelling a stage
+ * interrupts its thread, which ends blocking waits such as the session pool's
+ * and AdmissionControl's at once. join() waits until the work has actually
+ * stopped, so whatever a cancelled stage acquired can be cleaned up
+ * afterwards, and reports the failure that caused the cancellation rather
+ * than the interruption.
+ */
+final class SetupStage<T> {
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "harness-setup-" + THREAD_IDS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    // Guarded by this
+    private Thread thread;
+    private boolean cancelled;
+    private volatile Throwable cancelCause;
+
+    private SetupStage() {
+    }
+
+    static <T> SetupStage<T> start(Callable<T> work) {
+        SetupStage<T> stage = new SetupStage<>();
+        Callable<T> bound = HarnessMetrics.propagate(TestDiagnostics.propagate(work));
+        EXECUTOR.execute(() -> stage.run(bound));
+        return stage;
+    }
+
+    private void run(Callable<T> work) {
+        synchronized (this) {
+            if (cancelled) {
+                result.completeExceptionally(new CancellationException("Setup stage cancelled"));
+                return;
+            }
+            thread = Thread.currentThread();
+        }
+        try {
+            result.complete(work.call());
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                thread = null;
+            }
+            // Do not leave a cancellation interrupt on the pooled thread
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Cancels this stage as soon as the other stage fails.
+     */
+    void cancelOnFailureOf(SetupStage<?> other) {
+        other.result.whenComplete((value, failure) -> {
+            if (failure != null) {
+                cancel(failure instanceof CompletionException ? failure.getCause() : failure);
+            }
+        });
+    }
+
+    synchronized void cancel(Throwable cause) {
+        if (result.isDone() || cancelled) {
+            return;
+        }
+        cancelled = true;
+        cancelCause = cause;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Waits for the stage and returns its result.
+     */
+    T join() throws Exception {
+        try {
+            return result.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable failure = cancelCause != null ? cancelCause
+                : e instanceof CompletionException ? e.getCause() : e;
+            if (failure instanceof Exception) {
+                throw (Exception) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until the stage's work has stopped, ignoring how it ended.
+     */
+    void await() {
+        try {
+            result.join();
+        } catch (CompletionException | CancellationException e) {
+            // Reported by join()
+        }
+    }
+}
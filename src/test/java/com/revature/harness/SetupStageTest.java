@@ -0,0 +1,93 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+public class SetupStageTest {
+    @Test
+    public void joinReturnsTheResult() throws Exception {
+        assertEquals("session", SetupStage.start(() -> "session").join());
+    }
+
+    @Test
+    public void joinRethrowsTheFailureItself() {
+        IOException failure = new IOException("page not found");
+        SetupStage<Object> stage = SetupStage.start(() -> {
+            throw failure;
+        });
+
+        assertSame(failure, assertThrows(IOException.class, stage::join));
+    }
+
+    @Test
+    public void failureOfOneStageInterruptsTheOther() throws Exception {
+        CountDownLatch waiting = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean stopped = new AtomicBoolean();
+        SetupStage<String> lease = SetupStage.start(() -> {
+            try {
+                waiting.countDown();
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                return "session";
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+                throw e;
+            } finally {
+                stopped.set(true);
+            }
+        });
+        assertTrue(waiting.await(5, TimeUnit.SECONDS));
+        IllegalStateException failure = new IllegalStateException("no browser found");
+        SetupStage<String> detect = SetupStage.start(() -> {
+            throw failure;
+        });
+
+        lease.cancelOnFailureOf(detect);
+
+        // The lease reports why it was cancelled, not the interruption
+        assertSame(failure, assertThrows(IllegalStateException.class, lease::join));
+        lease.await();
+        assertTrue(interrupted.get());
+        assertTrue(stopped.get());
+    }
+
+    @Test
+    public void finishedStageIgnoresALaterFailure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SetupStage<String> failing = SetupStage.start(() -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("detection failed");
+        });
+        SetupStage<String> other = SetupStage.start(() -> "done");
+        other.join();
+
+        other.cancelOnFailureOf(failing);
+        release.countDown();
+        assertThrows(IllegalStateException.class, failing::join);
+        assertEquals("done", other.join());
+    }
+
+    @Test
+    public void successOfTheOtherStageLeavesThisOneRunning() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SetupStage<String> serve = SetupStage.start(() -> {
+            release.await(5, TimeUnit.SECONDS);
+            return "http://127.0.0.1/0/index.html";
+        });
+        SetupStage<String> detect = SetupStage.start(() -> "chrome");
+
+        serve.cancelOnFailureOf(detect);
+        assertEquals("chrome", detect.join());
+        release.countDown();
+
+        assertEquals("http://127.0.0.1/0/index.html", serve.join());
+    }
+}
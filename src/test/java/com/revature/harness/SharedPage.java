@@ -0,0 +1,37 @@
+package com.revature.harness;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares that the BROWSER tests of a class only read the page, so one page
+ * load can serve all of them.
+ *
+ * The first test of the class loads the page as usual, waits for the listed
+ * elements and console entries, and captures the text of every element with
+ * an id plus the console output. The browser session is then released and
+ * every test of the class, including the first, reads from that capture
+ * through LabPage. LabPage.driver() and the WebDriver and WebDriverWait
+ * parameters are not available, as in the script tier.
+ *
+ * Since the capture cannot change, awaitText() and awaitConsoleEntries() fail
+ * at once for text or entries the page had not produced, so each test still
+ * passes or fails on its own.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface SharedPage {
+    /**
+     * Ids of elements that must have text before the page is captured.
+     */
+    String[] value() default {};
+
+    /**
+     * Console entries the page must have logged before it is captured.
+     */
+    int consoleEntries() default 0;
+}
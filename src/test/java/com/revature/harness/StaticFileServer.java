@@ -0,0 +1,243 @@
+package com.revature.harness;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process static file server shared by every test in the JVM.
+ *
+ * The server binds an ephemeral loopback port (port 0), so it is ready as soon
+ * as start() returns and never collides with another server. Each document root
+ * is mounted under its own path prefix, which lets several submission folders
+ * be served at the same time.
+ *
+ * A mount can be limited to some directories below its document root, so that
+ * a page keeps its path (and relative links such as ../../resources/styling.css
+ * keep working) without the rest of the project being reachable. Symbolic
+ * links are resolved before that check, and hidden files, driver/ and
+ * config.json are never served.
+ */
+public class StaticFileServer {
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+    static {
+        CONTENT_TYPES.put("html", "text/html; charset=utf-8");
+        CONTENT_TYPES.put("htm", "text/html; charset=utf-8");
+        CONTENT_TYPES.put("js", "text/javascript; charset=utf-8");
+        CONTENT_TYPES.put("mjs", "text/javascript; charset=utf-8");
+        CONTENT_TYPES.put("css", "text/css; charset=utf-8");
+        CONTENT_TYPES.put("json", "application/json; charset=utf-8");
+        CONTENT_TYPES.put("txt", "text/plain; charset=utf-8");
+        CONTENT_TYPES.put("svg", "image/svg+xml");
+        CONTENT_TYPES.put("png", "image/png");
+        CONTENT_TYPES.put("jpg", "image/jpeg");
+        CONTENT_TYPES.put("jpeg", "image/jpeg");
+        CONTENT_TYPES.put("gif", "image/gif");
+        CONTENT_TYPES.put("ico", "image/x-icon");
+        CONTENT_TYPES.put("woff", "font/woff");
+        CONTENT_TYPES.put("woff2", "font/woff2");
+    }
+
+    // Never served, even below a served directory, as are names starting with "."
+    private static final Set<String> UNSERVED_NAMES = new HashSet<>(Arrays.asList("driver", "config.json"));
+
+    private static StaticFileServer shared;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // Keyed by the document root followed by the served directories, all real paths
+    private final Map<List<Path>, String> mounts = new ConcurrentHashMap<>();
+    private final AtomicInteger nextMount = new AtomicInteger();
+
+    private StaticFileServer() throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        server = HttpServer.create(new InetSocketAddress(loopback, 0), 0);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "static-file-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Returns the JVM-wide server, starting it on first use.
+     */
+    public static synchronized StaticFileServer shared() throws IOException {
+        if (shared == null) {
+            shared = new StaticFileServer();
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::stop, "static-file-server-shutdown"));
+        }
+        return shared;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Serves the given directory and returns the base URL (ending in "/") that
+     * maps onto it. Mounting the same directory twice returns the same URL.
+     */
+    public String mount(File documentRoot) throws IOException {
+        return mount(documentRoot, Collections.singletonList(documentRoot));
+    }
+
+    /**
+     * Maps the base URL onto a document root like mount(File), but serves
+     * only the files in the given directories below it.
+     */
+    public String mount(File documentRoot, List<File> servedDirectories) throws IOException {
+        return mounts.computeIfAbsent(mountKey(documentRoot, servedDirectories), this::createContext);
+    }
+
+    /**
+     * Returns the URL of a file below a document root, mounting the root if needed.
+     */
+    public String urlFor(File documentRoot, File file) throws IOException {
+        return mount(documentRoot) + relativeUrlPath(documentRoot, file);
+    }
+
+    /**
+     * Returns the URL of a file below a document root, mounting the root,
+     * limited to the served directories, if needed.
+     */
+    public String urlFor(File documentRoot, List<File> servedDirectories, File file) throws IOException {
+        return mount(documentRoot, servedDirectories) + relativeUrlPath(documentRoot, file);
+    }
+
+    /**
+     * The document root followed by the served directories, as real paths.
+     */
+    static List<Path> mountKey(File documentRoot, List<File> servedDirectories) throws IOException {
+        List<Path> key = new ArrayList<>();
+        key.add(documentRoot.toPath().toRealPath());
+        for (File directory : servedDirectories) {
+            key.add(directory.toPath().toRealPath());
+        }
+        return key;
+    }
+
+    /**
+     * The file a request path names below a mount's document root, or null
+     * unless, with symbolic links resolved, it is a regular file in one of
+     * the mount's served directories and none of its names is unserved.
+     */
+    static Path servedFile(List<Path> mount, String requestPath) {
+        Path root = mount.get(0);
+        Path target = root.resolve(requestPath).normalize();
+        if (Files.isDirectory(target)) {
+            target = target.resolve("index.html");
+        }
+        Path file;
+        try {
+            file = target.toRealPath();
+        } catch (IOException e) {
+            return null;
+        }
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        for (Path part : root.relativize(file)) {
+            String name = part.toString();
+            if (name.startsWith(".") || UNSERVED_NAMES.contains(name)) {
+                return null;
+            }
+        }
+        for (Path directory : mount.subList(1, mount.size())) {
+            if (file.startsWith(directory)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Path of a file relative to a document root, with "/" separators.
+     */
+    static String relativeUrlPath(File documentRoot, File file) throws IOException {
+        Path root = documentRoot.getCanonicalFile().toPath();
+        Path target = file.getCanonicalFile().toPath();
+        if (!target.startsWith(root)) {
+            throw new IllegalArgumentException(file + " is not inside " + documentRoot);
+        }
+        StringBuilder relative = new StringBuilder();
+        for (Path part : root.relativize(target)) {
+            if (relative.length() > 0) {
+                relative.append('/');
+            }
+            relative.append(part.toString());
+        }
+        return relative.toString();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private String createContext(List<Path> mount) {
+        String prefix = "/" + nextMount.getAndIncrement() + "/";
+        server.createContext(prefix, exchange -> handle(exchange, prefix, mount));
+        return "http://" + server.getAddress().getHostString() + ":" + port() + prefix;
+    }
+
+    private void handle(HttpExchange exchange, String prefix, List<Path> mount) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            boolean head = "HEAD".equals(method);
+            if (!head && !"GET".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            Path target = servedFile(mount, exchange.getRequestURI().getPath().substring(prefix.length()));
+            if (target == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            byte[] body = Files.readAllBytes(target);
+            exchange.getResponseHeaders().set("Content-Type", contentType(target));
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            if (head) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(body.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    static String contentType(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String extension = dot < 0 ? "" : name.substring(dot + 1).toLowerCase();
+        return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+}
@@ -0,0 +1,129 @@
+package com.revature.harness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class StaticFileServerTest {
+    @TempDir
+    Path directory;
+
+    private File site;
+
+    @BeforeEach
+    public void createSite() throws IOException {
+        Path root = Files.createDirectories(directory.resolve("site"));
+        Files.write(root.resolve("index.html"), "<h1>Hi</h1>".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(root.resolve("js"));
+        Files.write(root.resolve("js/app.js"), "run();".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("secret.txt"), "secret".getBytes(StandardCharsets.UTF_8));
+        site = root.toFile();
+    }
+
+    @Test
+    public void relativeUrlPathUsesSlashes() throws IOException {
+        assertEquals("js/app.js", StaticFileServer.relativeUrlPath(site, new File(site, "js/app.js")));
+        assertEquals("index.html", StaticFileServer.relativeUrlPath(site, new File(site, "js/../index.html")));
+    }
+
+    @Test
+    public void relativeUrlPathRejectsFilesOutsideTheRoot() {
+        assertThrows(IllegalArgumentException.class,
+            () -> StaticFileServer.relativeUrlPath(site, new File(site, "../secret.txt")));
+        assertThrows(IllegalArgumentException.class,
+            () -> StaticFileServer.relativeUrlPath(site, directory.resolve("site-other/index.html").toFile()));
+    }
+
+    @Test
+    public void servesFilesBelowTheRoot() throws IOException {
+        String base = StaticFileServer.shared().mount(site);
+        assertEquals(200, status(base + "js/app.js"));
+        assertEquals(200, status(base));
+        assertEquals(404, status(base + "missing.js"));
+    }
+
+    @Test
+    public void refusesPathsThatClimbOutOfTheRoot() throws IOException {
+        String base = StaticFileServer.shared().mount(site);
+        // Encoded, so the client sends the dots as they are and the server decodes them
+        assertEquals(404, status(base + "%2e%2e/secret.txt"));
+        assertEquals(404, status(base + "js/%2e%2e/%2e%2e/secret.txt"));
+        assertEquals(404, status(base + "..%2fsecret.txt"));
+    }
+
+    @Test
+    public void allowsOnlyReads() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(StaticFileServer.shared().mount(site)
+            + "index.html").openConnection();
+        connection.setRequestMethod("DELETE");
+        try {
+            assertEquals(405, connection.getResponseCode());
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void servesThePageFolderWithTheResourcesFolder() throws IOException {
+        Path project = Files.createDirectories(directory.resolve("project"));
+        Path main = Files.createDirectories(project.resolve("src/main"));
+        Files.write(main.resolve("index.html"), "<h1>Hi</h1>".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(project.resolve("resources"));
+        Files.write(project.resolve("resources/styling.css"), "h1 {}".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(main.resolve("driver"));
+        Files.write(main.resolve("driver/chromedriver"), "binary".getBytes(StandardCharsets.UTF_8));
+        Files.write(main.resolve("config.json"), "{}".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(main.resolve(".git"));
+        Files.write(main.resolve(".git/config"), "[core]".getBytes(StandardCharsets.UTF_8));
+        Files.write(project.resolve("pom.xml"), "<project/>".getBytes(StandardCharsets.UTF_8));
+
+        String url = StaticFileServer.shared().urlFor(project.toFile(),
+            Arrays.asList(main.toFile(), project.resolve("resources").toFile()), main.resolve("index.html").toFile());
+        String base = url.substring(0, url.length() - "src/main/index.html".length());
+
+        assertTrue(url.endsWith("/src/main/index.html"), url);
+        assertEquals(200, status(url));
+        // The link as the page writes it, resolved against the page's URL
+        assertEquals(200, status(new URL(new URL(url), "../../resources/styling.css").toString()));
+        assertEquals(404, status(base + "pom.xml"));
+        assertEquals(404, status(base + "src/main/driver/chromedriver"));
+        assertEquals(404, status(base + "src/main/config.json"));
+        assertEquals(404, status(base + "src/main/.git/config"));
+    }
+
+    @Test
+    public void refusesLinksThatPointOutOfTheRoot() throws IOException {
+        try {
+            Files.createSymbolicLink(site.toPath().resolve("escape.txt"), directory.resolve("secret.txt"));
+            Files.createSymbolicLink(site.toPath().resolve("outside"), directory);
+        } catch (UnsupportedOperationException | IOException e) {
+            Assumptions.assumeTrue(false, "Symbolic links are not supported here");
+        }
+        String base = StaticFileServer.shared().mount(site);
+
+        assertEquals(404, status(base + "escape.txt"));
+        assertEquals(404, status(base + "outside/secret.txt"));
+    }
+
+    private static int status(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
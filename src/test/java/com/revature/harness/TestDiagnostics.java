@@ -0,0 +1,180 @@
+package com.revature.harness;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Level-gated, per-test buffered logging for the harness.
+ *
+ * All harness classes log through java.util.logging loggers below
+ * "selenium.harness". While a test runs, records are kept in a buffer owned by
+ * the test's thread; the buffer is printed to stderr only if the test (or its
+ * setup) fails and is dropped otherwise. Records logged outside a test are
+ * printed straight away.
+ *
+ * Configuration (system properties):
+ *   selenium.log.level  - java.util.logging level name (default INFO);
+ *                         FINE also enables expensive page probes
+ *   selenium.log.buffer - set to "false" to print records immediately
+ */
+public class TestDiagnostics {
+    public static final String ROOT_LOGGER = "selenium.harness";
+    private static final int MAX_BUFFERED_RECORDS = 5000;
+
+    private static final Logger ROOT = Logger.getLogger(ROOT_LOGGER);
+    private static final BufferingHandler HANDLER = new BufferingHandler();
+    private static final ThreadLocal<List<LogRecord>> BUFFER = new ThreadLocal<>();
+    private static final ThreadLocal<Runnable> FAILURE_PROBE = new ThreadLocal<>();
+    private static final boolean BUFFERING =
+        Boolean.parseBoolean(System.getProperty("selenium.log.buffer", "true"));
+
+    static {
+        Level level = Level.parse(System.getProperty("selenium.log.level", "INFO").toUpperCase());
+        ROOT.setLevel(level);
+        ROOT.setUseParentHandlers(false);
+        HANDLER.setLevel(Level.ALL);
+        ROOT.addHandler(HANDLER);
+    }
+
+    private TestDiagnostics() {
+    }
+
+    public static Logger logger(Class<?> owner) {
+        return Logger.getLogger(ROOT_LOGGER + "." + owner.getSimpleName());
+    }
+
+    /**
+     * Registers a probe that logs expensive page details (title, URL, source).
+     * It only runs when the current test fails.
+     */
+    public static void onFailure(Runnable probe) {
+        FAILURE_PROBE.set(probe);
+    }
+
+    public static void begin() {
+        // Synchronized because setup stages of the test log from other threads
+        BUFFER.set(BUFFERING ? Collections.synchronizedList(new ArrayList<>()) : null);
+        FAILURE_PROBE.remove();
+    }
+
+    public static void end(boolean failed) {
+        List<LogRecord> records = BUFFER.get();
+        BUFFER.remove();
+        FAILURE_PROBE.remove();
+        if (failed && records != null) {
+            System.err.println("=== HARNESS LOG (test failed) ===");
+            synchronized (records) {
+                for (LogRecord record : records) {
+                    HANDLER.print(record, System.err);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wraps a task so that, on whichever thread runs it, its records go to the
+     * buffer of the test that is current on the calling thread.
+     */
+    static <T> Callable<T> propagate(Callable<T> task) {
+        List<LogRecord> buffer = BUFFER.get();
+        return () -> {
+            List<LogRecord> previous = BUFFER.get();
+            BUFFER.set(buffer);
+            try {
+                return task.call();
+            } finally {
+                BUFFER.set(previous);
+            }
+        };
+    }
+
+    private static void runFailureProbe() {
+        Runnable probe = FAILURE_PROBE.get();
+        if (probe == null) {
+            return;
+        }
+        try {
+            probe.run();
+        } catch (Exception e) {
+            ROOT.log(Level.WARNING, "Could not collect page diagnostics: " + e.getMessage());
+        }
+    }
+
+    private static class BufferingHandler extends Handler {
+        @Override
+        public void publish(LogRecord record) {
+            if (!isLoggable(record)) {
+                return;
+            }
+            List<LogRecord> records = BUFFER.get();
+            if (records == null) {
+                print(record, record.getLevel().intValue() >= Level.WARNING.intValue() ? System.err : System.out);
+                return;
+            }
+            synchronized (records) {
+                if (records.size() < MAX_BUFFERED_RECORDS) {
+                    records.add(record);
+                }
+            }
+        }
+
+        void print(LogRecord record, PrintStream out) {
+            StringBuilder line = new StringBuilder();
+            if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+                line.append(record.getLevel().getName()).append(": ");
+            }
+            line.append(record.getMessage());
+            if (record.getThrown() != null) {
+                StringWriter trace = new StringWriter();
+                record.getThrown().printStackTrace(new PrintWriter(trace));
+                line.append(System.lineSeparator()).append(trace);
+            }
+            out.println(line);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * JUnit extension that opens a buffer before each test (including its
+     * @BeforeEach methods) and prints it only when the test fails.
+     */
+    public static class Extension implements BeforeEachCallback, AfterTestExecutionCallback, AfterEachCallback {
+        @Override
+        public void beforeEach(ExtensionContext context) {
+            begin();
+        }
+
+        @Override
+        public void afterTestExecution(ExtensionContext context) {
+            // Runs before @AfterEach, while the page under test is still loaded
+            if (context.getExecutionException().isPresent()) {
+                runFailureProbe();
+            }
+        }
+
+        @Override
+        public void afterEach(ExtensionContext context) {
+            end(context.getExecutionException().isPresent());
+        }
+    }
+}
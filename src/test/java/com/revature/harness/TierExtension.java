@@ -0,0 +1,86 @@
+package com.revature.harness;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.MethodOrdererContext;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.openqa.selenium.TimeoutException;
+
+/**
+ * Runs the script tier as a gate in front of the browser tier.
+ *
+ * With Orderer the SCRIPT tests of a class run first. Once one of them fails
+ * a check, the BROWSER tests of that class fail before their setup, so a
+ * submission with broken logic never launches ChromeDriver. Other errors,
+ * e.g. in the test's setup, say nothing about the logic and leave the gate
+ * open. The gate is off when the script tier is disabled, since SCRIPT tests
+ * then already use the browser.
+ */
+public class TierExtension implements BeforeEachCallback, AfterEachCallback {
+    private static final Logger logger = TestDiagnostics.logger(TierExtension.class);
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(TierExtension.class);
+    private static final String SCRIPT_TIER_FAILURE = "scriptTierFailure";
+
+    /**
+     * The tier declared on a test method or its class; BROWSER when neither says.
+     */
+    public static GradingTier.Tier tierOf(Method method) {
+        for (AnnotatedElement element : new AnnotatedElement[] { method, method.getDeclaringClass() }) {
+            GradingTier tier = element.getAnnotation(GradingTier.class);
+            if (tier != null) {
+                return tier.value();
+            }
+        }
+        return GradingTier.Tier.BROWSER;
+    }
+
+    public static GradingTier.Tier tierOf(Optional<Method> method) {
+        return method.map(TierExtension::tierOf).orElse(GradingTier.Tier.BROWSER);
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        if (!ScriptTier.ENABLED || tierOf(context.getTestMethod()) != GradingTier.Tier.BROWSER) {
+            return;
+        }
+        String failedTest = classStore(context).get(SCRIPT_TIER_FAILURE, String.class);
+        if (failedTest != null) {
+            throw new AssertionError("Skipped browser checks: script-tier test " + failedTest + " failed");
+        }
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        if (ScriptTier.ENABLED
+                && tierOf(context.getTestMethod()) == GradingTier.Tier.SCRIPT
+                && context.getExecutionException().filter(TierExtension::isCheckFailure).isPresent()) {
+            logger.info(() -> "Script-tier test " + context.getDisplayName() + " failed; browser tests will be skipped");
+            classStore(context).getOrComputeIfAbsent(SCRIPT_TIER_FAILURE, key -> context.getDisplayName());
+        }
+    }
+
+    // A failed assertion or an element that never got its text, as opposed to a harness error
+    private static boolean isCheckFailure(Throwable failure) {
+        return failure instanceof AssertionError || failure instanceof TimeoutException;
+    }
+
+    private static ExtensionContext.Store classStore(ExtensionContext context) {
+        return context.getParent().orElse(context).getStore(NAMESPACE);
+    }
+
+    /**
+     * Orders the tests of a class by tier, cheapest first, keeping JUnit's order within a tier.
+     */
+    public static class Orderer implements MethodOrderer {
+        @Override
+        public void orderMethods(MethodOrdererContext context) {
+            context.getMethodDescriptors().sort(Comparator.comparing(descriptor -> tierOf(descriptor.getMethod())));
+        }
+    }
+}
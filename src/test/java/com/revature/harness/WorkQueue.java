@@ -0,0 +1,133 @@
+package com.revature.harness;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Queue of grading shards shared by a coordinator and any number of workers.
+ *
+ * A shard is an id and a payload, for DistributedGrader the submission paths
+ * it covers. A worker claims a pending shard and holds a lease on it for a
+ * limited time, which it extends with heartbeats while it grades. A lease
+ * that is not extended in time is assumed to belong to a dead worker, and
+ * requeueExpired() makes its shard pending again for another worker. A
+ * completed shard keeps the worker's result until the coordinator merges them.
+ * Once the coordinator has added every shard it seals the queue; until then
+ * an empty queue only means that workers started early.
+ *
+ * Implementations must make claiming, extending and requeueing a lease
+ * atomic, so that a shard is only leased by one worker at a time. Grading a
+ * shard twice, e.g. after a worker was wrongly presumed dead, must be harmless.
+ */
+public interface WorkQueue {
+    /**
+     * Adds a pending shard. Does nothing if the shard is already in the queue,
+     * so a coordinator that died while adding can add everything again.
+     */
+    void add(String shardId, String payload) throws IOException;
+
+    /**
+     * Records that every shard has been added.
+     */
+    void seal() throws IOException;
+
+    boolean isSealed() throws IOException;
+
+    /**
+     * Leases a pending shard to the worker, or returns null if none is pending.
+     */
+    Lease claim(String workerId) throws IOException;
+
+    /**
+     * Extends the lease. Returns false if the lease has been lost, in which
+     * case another worker may already be grading the shard.
+     */
+    boolean heartbeat(Lease lease) throws IOException;
+
+    /**
+     * Stores the shard's result and ends the lease.
+     */
+    void complete(Lease lease, String result) throws IOException;
+
+    /**
+     * Makes the shards of expired leases pending again and returns how many.
+     */
+    int requeueExpired() throws IOException;
+
+    Status status() throws IOException;
+
+    /**
+     * The results of the completed shards, by shard id in id order.
+     */
+    Map<String, String> results() throws IOException;
+
+    /**
+     * A worker's claim on one shard.
+     */
+    final class Lease {
+        private final String shardId;
+        private final String workerId;
+        private final String payload;
+        // Implementation-specific reference to the lease, replaced by heartbeats
+        volatile String handle;
+
+        Lease(String shardId, String workerId, String payload, String handle) {
+            this.shardId = shardId;
+            this.workerId = workerId;
+            this.payload = payload;
+            this.handle = handle;
+        }
+
+        public String shardId() {
+            return shardId;
+        }
+
+        public String workerId() {
+            return workerId;
+        }
+
+        public String payload() {
+            return payload;
+        }
+    }
+
+    /**
+     * Number of shards in each state.
+     */
+    final class Status {
+        private final int pending;
+        private final int leased;
+        private final int done;
+
+        Status(int pending, int leased, int done) {
+            this.pending = pending;
+            this.leased = leased;
+            this.done = done;
+        }
+
+        public int pending() {
+            return pending;
+        }
+
+        public int leased() {
+            return leased;
+        }
+
+        public int done() {
+            return done;
+        }
+
+        public int total() {
+            return pending + leased + done;
+        }
+
+        public boolean finished() {
+            return pending == 0 && leased == 0;
+        }
+
+        @Override
+        public String toString() {
+            return done + "/" + total() + " shards done, " + leased + " leased, " + pending + " pending";
+        }
+    }
+}